@@ -0,0 +1,56 @@
+package com.datasacura.test;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indexed compatibility graph build against the all-pairs one on tall dungeons with sparse edges, where the index
+ * skips most of the pairs, and against the tiled bit-matrix build on the common pool, which tests every pair but
+ * spreads them across the cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CompatibilityGraphBenchmark {
+
+    @Param({"1000", "4000", "16000"})
+    int poolSize;
+
+    private List<Dungeon> dungeons;
+
+    @Setup
+    public void setUp() {
+        this.dungeons = SyntheticPools.dungeons(this.poolSize, 256, 4, 1.0 / 256, SyntheticPools.SEED);
+    }
+
+    @Benchmark
+    public CompatibilityGraph indexed() {
+        return CompatibilityGraph.build(this.dungeons);
+    }
+
+    @Benchmark
+    public CompatibilityGraph tiled() {
+        return CompatibilityGraph.buildTiled(this.dungeons, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public CompatibilityGraph allPairs() {
+        return CompatibilityGraph.buildAllPairs(this.dungeons);
+    }
+}
@@ -0,0 +1,66 @@
+package com.datasacura.test;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DungeonBenchmark {
+    private static final int NUMBER_OF_DUNGEONS = 1024; // cycled through, so one pair does not stay in a register
+
+    @Param({"16", "256"})
+    int numberOfRows;
+
+    @Param({"16", "256"})
+    int numberOfColumns;
+
+    @Param({"0.05", "0.5"})
+    double edgeDensity;
+
+    private Dungeon[] dungeons;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<Dungeon> dungeons = SyntheticPools.dungeons(NUMBER_OF_DUNGEONS, this.numberOfRows,
+                this.numberOfColumns, this.edgeDensity, SyntheticPools.SEED);
+        this.dungeons = dungeons.toArray(new Dungeon[0]);
+    }
+
+    @Benchmark
+    public boolean isCompatibleWith() {
+        int current = nextIndex();
+        return this.dungeons[current].isCompatibleWith(this.dungeons[(current + 1) & (NUMBER_OF_DUNGEONS - 1)]);
+    }
+
+    @Benchmark
+    public boolean isPassable() {
+        return this.dungeons[nextIndex()].isPassable();
+    }
+
+    @Benchmark
+    public Dungeon copy() {
+        return this.dungeons[nextIndex()].copy();
+    }
+
+    private int nextIndex() {
+        this.next = (this.next + 1) & (NUMBER_OF_DUNGEONS - 1);
+        return this.next;
+    }
+}
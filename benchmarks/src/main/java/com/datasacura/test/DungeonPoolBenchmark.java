@@ -0,0 +1,84 @@
+package com.datasacura.test;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool build and sequence search. The sequence length lives in its own state, so the build benchmarks do not repeat
+ * for every length. Searches run with a time budget: a length close to the bound of a sparse pool can take far
+ * longer than the other cells, and such a cell then reports budget exhaustion instead of stalling the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DungeonPoolBenchmark {
+    private static final SearchBudget SEARCH_BUDGET = SearchBudget.ofTimeout(Duration.ofSeconds(1));
+
+    @Param({"100", "1000", "10000"})
+    int poolSize;
+
+    @Param({"64"})
+    int numberOfRows;
+
+    @Param({"8"})
+    int numberOfColumns;
+
+    @Param({"0.02", "0.2"})
+    double edgeDensity;
+
+    private List<Dungeon> dungeons;
+    private DungeonPool dungeonPool;
+
+    @Setup
+    public void setUp() {
+        this.dungeons = SyntheticPools.dungeons(this.poolSize, this.numberOfRows, this.numberOfColumns,
+                this.edgeDensity, SyntheticPools.SEED);
+        this.dungeonPool = new DungeonPool(this.dungeons);
+    }
+
+    @Benchmark
+    public CompatibilityGraph buildCompatibilityGraph() {
+        return CompatibilityGraph.build(this.dungeons);
+    }
+
+    @Benchmark
+    public DungeonPool buildPool() {
+        return new DungeonPool(this.dungeons);
+    }
+
+    @Benchmark
+    public SequenceResult createXSequence(SequenceRequest request) {
+        return this.dungeonPool.createXSequence(request.sequenceLength, SEARCH_BUDGET);
+    }
+
+    @State(Scope.Benchmark)
+    public static class SequenceRequest {
+
+        @Param({"10", "100"})
+        int sequenceLength;
+
+        @Setup
+        public void setUp(DungeonPoolBenchmark pool) {
+            if (this.sequenceLength > pool.dungeonPool.getUpperBoundLength()) {
+                throw new IllegalStateException("Synthetic pool can not hold a sequence of " + this.sequenceLength
+                        + " dungeons, pick a higher edge density.");
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.datasacura.test;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.LongBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a pool update, both ways round so the pool stays the same between invocations: a dungeon of a known
+ * profile only changes a class count, a dungeon of a new profile appends a class and removing it drops the class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PoolUpdateBenchmark {
+
+    @Param({"1000", "10000"})
+    int poolSize;
+
+    @Param({"64"})
+    int numberOfRows;
+
+    @Param({"0.02", "0.2"})
+    double edgeDensity;
+
+    private DungeonPool dungeonPool;
+    private Dungeon knownProfile;
+    private Dungeon newProfile;
+
+    @Setup
+    public void setUp() {
+        List<Dungeon> dungeons = SyntheticPools.dungeons(this.poolSize, this.numberOfRows, 8, this.edgeDensity,
+                SyntheticPools.SEED);
+        this.dungeonPool = new DungeonPool(dungeons);
+        Dungeon source = dungeons.get(0);
+        LongBuffer sourceCells = source.getCells();
+        long[] cells = new long[sourceCells.remaining()];
+        sourceCells.duplicate().get(cells);
+        this.knownProfile = Dungeon.ofCells(source.getNumberOfRows(), source.getNumberOfColumns(), cells);
+        // every row of both edges free, no synthetic dungeon draws that profile
+        this.newProfile = SyntheticPools.dungeons(1, this.numberOfRows, 8, 1.0, SyntheticPools.SEED).get(0);
+    }
+
+    @Benchmark
+    public int addAndRemoveKnownProfile() {
+        this.dungeonPool.add(this.knownProfile);
+        this.dungeonPool.remove(this.knownProfile);
+        return this.dungeonPool.size();
+    }
+
+    @Benchmark
+    public int addAndRemoveNewProfile() {
+        this.dungeonPool.add(this.newProfile);
+        this.dungeonPool.remove(this.newProfile);
+        return this.dungeonPool.size();
+    }
+}
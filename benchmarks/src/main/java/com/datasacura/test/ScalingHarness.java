@@ -0,0 +1,202 @@
+package com.datasacura.test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Sweeps generated pools over shape, size, air density and sequence length, and writes one CSV row per case, so
+ * results of two releases can be compared line by line. Every option has a default, e.g.
+ * {@code java -cp target/benchmarks.jar com.datasacura.test.ScalingHarness --sizes=1000,1000000 --out=run.csv}.
+ * <p>
+ * A length of {@code bound} searches for a sequence of the pool upper bound length, the near-infeasible case.
+ * With {@code --soak} every case keeps searching for the given duration, and the heap growth shows leaks.
+ */
+public class ScalingHarness {
+    private static final String HEADER = "release,shape,dungeons,rows,columns,airDensity,length,upperBound,"
+            + "buildMillis,heapMegabytes,heapGrowthMegabytes,searches,found,impossible,budgetExhausted,failures,"
+            + "p50Micros,p90Micros,p99Micros,maxMicros,failure";
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parse(args);
+        String release = options.getOrDefault("release", "dev");
+        List<SyntheticPools.Shape> shapes = new ArrayList<>();
+        for (String shape : options.getOrDefault("shapes", "RANDOM,CHAIN").split(",")) {
+            shapes.add(SyntheticPools.Shape.valueOf(shape.trim().toUpperCase(Locale.ROOT)));
+        }
+        int[] sizes = ints(options.getOrDefault("sizes", "1000,10000,100000"));
+        double[] densities = Arrays.stream(options.getOrDefault("densities", "0.05,0.3").split(","))
+                .mapToDouble(Double::parseDouble).toArray();
+        String[] lengths = options.getOrDefault("lengths", "10,100,bound").split(",");
+        int numberOfRows = Integer.parseInt(options.getOrDefault("rows", "64"));
+        int numberOfColumns = Integer.parseInt(options.getOrDefault("columns", "8"));
+        int searches = Integer.parseInt(options.getOrDefault("searches", "20"));
+        Duration timeout = Duration.parse(options.getOrDefault("timeout", "PT1S"));
+        Duration soak = Duration.parse(options.getOrDefault("soak", "PT0S"));
+        long seed = Long.parseLong(options.getOrDefault("seed", String.valueOf(SyntheticPools.SEED)));
+        Path out = Paths.get(options.getOrDefault("out", "scaling-results.csv"));
+
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(out, UTF_8))) {
+            writer.println(HEADER);
+            for (SyntheticPools.Shape shape : shapes) {
+                for (int size : sizes) {
+                    for (double density : densities) {
+                        Case poolCase = new Case(release, shape, size, numberOfRows, numberOfColumns, density);
+                        runPool(poolCase, lengths, searches, timeout, soak, seed, writer);
+                        writer.flush();
+                    }
+                }
+            }
+        }
+        System.out.println("Results written to " + out.toAbsolutePath());
+    }
+
+    private static void runPool(Case poolCase, String[] lengths, int searches, Duration timeout, Duration soak,
+                                long seed, PrintWriter writer) {
+        DungeonPool dungeonPool;
+        long buildNanos;
+        try {
+            List<Dungeon> dungeons = SyntheticPools.pool(poolCase.shape, poolCase.size, poolCase.numberOfRows,
+                    poolCase.numberOfColumns, poolCase.density, seed);
+            long start = System.nanoTime();
+            dungeonPool = new DungeonPool(dungeons);
+            buildNanos = System.nanoTime() - start;
+        } catch (RuntimeException | OutOfMemoryError e) {
+            for (String length : lengths) {
+                writer.println(poolCase.row(length, -1, -1, -1, -1, new Latencies(0), describe(e)));
+            }
+            return;
+        }
+        long heapBytes = usedHeap();
+        for (String lengthOption : lengths) {
+            int length = lengthOption.trim().equals("bound")
+                    ? dungeonPool.getUpperBoundLength()
+                    : Integer.parseInt(lengthOption.trim());
+            Latencies latencies = new Latencies(searches);
+            String failure = "";
+            long soakEnd = System.nanoTime() + soak.toNanos();
+            do {
+                for (int search = 0; search < searches; search++) {
+                    try {
+                        long start = System.nanoTime();
+                        SequenceResult result = dungeonPool.createXSequence(length, SearchBudget.ofTimeout(timeout));
+                        latencies.record(System.nanoTime() - start, result.getStatus());
+                    } catch (RuntimeException | OutOfMemoryError e) {
+                        latencies.recordFailure();
+                        failure = describe(e);
+                    }
+                }
+            } while (System.nanoTime() < soakEnd);
+            long heapGrowthBytes = usedHeap() - heapBytes;
+            writer.println(poolCase.row(String.valueOf(length), dungeonPool.getUpperBoundLength(),
+                    buildNanos / 1_000_000, heapBytes >> 20, heapGrowthBytes >> 20, latencies, failure));
+        }
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static String describe(Throwable e) {
+        String description = e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : "");
+        return '"' + description.replace("\"", "\"\"") + '"';
+    }
+
+    private static int[] ints(String values) {
+        return Arrays.stream(values.split(",")).mapToInt(value -> Integer.parseInt(value.trim())).toArray();
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Options are expected as --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    private static final class Case {
+        private final String release;
+        private final SyntheticPools.Shape shape;
+        private final int size;
+        private final int numberOfRows;
+        private final int numberOfColumns;
+        private final double density;
+
+        private Case(String release, SyntheticPools.Shape shape, int size, int numberOfRows, int numberOfColumns,
+                     double density) {
+            this.release = release;
+            this.shape = shape;
+            this.size = size;
+            this.numberOfRows = numberOfRows;
+            this.numberOfColumns = numberOfColumns;
+            this.density = density;
+        }
+
+        private String row(String length, int upperBound, long buildMillis, long heapMegabytes,
+                           long heapGrowthMegabytes, Latencies latencies, String failure) {
+            return String.join(",", this.release, this.shape.name(), String.valueOf(this.size),
+                    String.valueOf(this.numberOfRows), String.valueOf(this.numberOfColumns),
+                    String.valueOf(this.density), length, String.valueOf(upperBound), String.valueOf(buildMillis),
+                    String.valueOf(heapMegabytes), String.valueOf(heapGrowthMegabytes), latencies.toCsv(), failure);
+        }
+    }
+
+    private static final class Latencies {
+        private long[] nanos;
+        private int count;
+        private final Map<SequenceResult.Status, Integer> statuses = new EnumMap<>(SequenceResult.Status.class);
+        private int failures;
+
+        private Latencies(int expectedCount) {
+            this.nanos = new long[Math.max(expectedCount, 1)];
+        }
+
+        private void record(long latencyNanos, SequenceResult.Status status) {
+            if (this.count == this.nanos.length) {
+                this.nanos = Arrays.copyOf(this.nanos, this.count * 2);
+            }
+            this.nanos[this.count++] = latencyNanos;
+            this.statuses.merge(status, 1, Integer::sum);
+        }
+
+        private void recordFailure() {
+            this.failures++;
+        }
+
+        private String toCsv() {
+            long[] sorted = Arrays.copyOf(this.nanos, this.count);
+            Arrays.sort(sorted);
+            return String.join(",", String.valueOf(this.count + this.failures),
+                    String.valueOf(this.statuses.getOrDefault(SequenceResult.Status.FOUND, 0)),
+                    String.valueOf(this.statuses.getOrDefault(SequenceResult.Status.IMPOSSIBLE, 0)),
+                    String.valueOf(this.statuses.getOrDefault(SequenceResult.Status.BUDGET_EXHAUSTED, 0)),
+                    String.valueOf(this.failures), percentile(sorted, 0.5), percentile(sorted, 0.9),
+                    percentile(sorted, 0.99), percentile(sorted, 1.0));
+        }
+
+        private static String percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return "";
+            }
+            int rank = (int) Math.ceil(percentile * sorted.length) - 1;
+            return String.valueOf(sorted[Math.max(rank, 0)] / 1_000);
+        }
+    }
+}
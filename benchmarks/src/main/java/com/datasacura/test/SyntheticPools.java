@@ -0,0 +1,130 @@
+package com.datasacura.test;
+
+import com.datasacura.test.Dungeon.Block;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import static com.datasacura.test.Dungeon.Block.AIR;
+import static com.datasacura.test.Dungeon.Block.GROUND;
+
+/**
+ * Seeded dungeon generator, so every benchmark fork measures the same pool.
+ */
+final class SyntheticPools {
+    static final long SEED = 42;
+
+    private SyntheticPools() {
+    }
+
+    /**
+     * Every edge row is free with the given density, at least one row per edge is always free so the dungeon is
+     * passable. The interior is ground, it does not affect compatibility.
+     */
+    static List<Dungeon> dungeons(int poolSize, int numberOfRows, int numberOfColumns, double edgeDensity,
+                                  long seed) {
+        Random random = new Random(seed);
+        List<Dungeon> dungeons = new ArrayList<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            dungeons.add(dungeon(numberOfRows, numberOfColumns, edgeDensity, random));
+        }
+        return dungeons;
+    }
+
+    /**
+     * Generates pools for the scaling harness straight into packed cells, fast enough for millions of dungeons.
+     * Every cell is air with the given density, edges included.
+     */
+    static List<Dungeon> pool(Shape shape, int poolSize, int numberOfRows, int numberOfColumns, double airDensity,
+                              long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Dungeon> dungeons = new ArrayList<>(poolSize);
+        int link = random.nextInt(numberOfRows);
+        for (int i = 0; i < poolSize; i++) {
+            if (shape == Shape.CHAIN) {
+                int nextLink = random.nextInt(numberOfRows);
+                dungeons.add(packed(numberOfRows, numberOfColumns, airDensity, link, nextLink, random));
+                link = nextLink;
+            } else {
+                dungeons.add(packed(numberOfRows, numberOfColumns, airDensity, -1, -1, random));
+            }
+        }
+        return dungeons;
+    }
+
+    /**
+     * Edge rows are drawn like the interior unless fixed, a fixed edge has exactly one free row.
+     */
+    private static Dungeon packed(int numberOfRows, int numberOfColumns, double airDensity, int entranceRow,
+                                  int exitRow, SplittableRandom random) {
+        long[] cells = new long[Dungeon.numberOfCellWords(numberOfRows, numberOfColumns)];
+        for (long cellIndex = 0; cellIndex < (long) numberOfRows * numberOfColumns; cellIndex++) {
+            if (random.nextDouble() < airDensity) {
+                cells[(int) (cellIndex >>> 6)] |= 1L << cellIndex;
+            }
+        }
+        boolean freeEntrance = false;
+        boolean freeExit = false;
+        for (int row = 0; row < numberOfRows; row++) {
+            long firstCell = (long) row * numberOfColumns;
+            long lastCell = firstCell + numberOfColumns - 1;
+            if (entranceRow >= 0) {
+                setCell(cells, firstCell, row == entranceRow);
+            }
+            if (exitRow >= 0) {
+                setCell(cells, lastCell, row == exitRow);
+            }
+            freeEntrance |= (cells[(int) (firstCell >>> 6)] & (1L << firstCell)) != 0;
+            freeExit |= (cells[(int) (lastCell >>> 6)] & (1L << lastCell)) != 0;
+        }
+        if (!freeEntrance) {
+            setCell(cells, (long) random.nextInt(numberOfRows) * numberOfColumns, true);
+        }
+        if (!freeExit) {
+            setCell(cells, (long) random.nextInt(numberOfRows) * numberOfColumns + numberOfColumns - 1, true);
+        }
+        return Dungeon.ofCells(numberOfRows, numberOfColumns, cells);
+    }
+
+    private static void setCell(long[] cells, long cellIndex, boolean air) {
+        if (air) {
+            cells[(int) (cellIndex >>> 6)] |= 1L << cellIndex;
+        } else {
+            cells[(int) (cellIndex >>> 6)] &= ~(1L << cellIndex);
+        }
+    }
+
+    static Dungeon dungeon(int numberOfRows, int numberOfColumns, double edgeDensity, Random random) {
+        Block[][] area = new Block[numberOfRows][numberOfColumns];
+        for (Block[] row : area) {
+            Arrays.fill(row, GROUND);
+        }
+        area[random.nextInt(numberOfRows)][0] = AIR;
+        area[random.nextInt(numberOfRows)][numberOfColumns - 1] = AIR;
+        for (int row = 0; row < numberOfRows; row++) {
+            if (random.nextDouble() < edgeDensity) {
+                area[row][0] = AIR;
+            }
+            if (random.nextDouble() < edgeDensity) {
+                area[row][numberOfColumns - 1] = AIR;
+            }
+        }
+        return new Dungeon(area);
+    }
+
+    enum Shape {
+        /**
+         * Independent random dungeons, compatibility follows from the air density alone.
+         */
+        RANDOM,
+        /**
+         * Every dungeon has a single free row per edge, and the exit row of each dungeon is the entrance row of the
+         * next one. A sequence through the whole pool always exists, but the search has to find a near-Hamiltonian
+         * path among many dead ends.
+         */
+        CHAIN
+    }
+}
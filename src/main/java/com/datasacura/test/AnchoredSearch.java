@@ -0,0 +1,188 @@
+package com.datasacura.test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Sequence search with a fixed first and/or last class. With one anchor the search simply walks away from it, over
+ * the reversed graph for a fixed end. With both it meets in the middle: every backward half from the end is
+ * enumerated first, then the forward search from the start only goes half the way and joins a backward half whose
+ * class usage still fits next to its own.
+ * <p>
+ * When the backward halves do not fit the enumeration limit, the backward half shrinks to the last class alone,
+ * which leaves a plain exhaustive forward search constrained to end next to it. The limit counts the classes stored
+ * over all halves, so long halves do not hold more memory than short ones. The forward search only gets the budget
+ * the enumeration left over.
+ * <p>
+ * Each half keeps one dungeon of the other anchor's class out of its reach, otherwise a half could use it up and
+ * every path below would only be rejected at the join.
+ */
+final class AnchoredSearch {
+    static final int MAX_BACKWARD_CLASSES = 1 << 20;
+
+    private final PoolIndex index;
+    private final int length;
+    private final SplittableRandom random;
+    private final SearchBudget budget;
+    private final List<SequenceSearch> searches = new ArrayList<>(2);
+
+    AnchoredSearch(PoolIndex index, int length, SplittableRandom random, SearchBudget budget) {
+        this.index = index;
+        this.length = length;
+        this.random = random;
+        this.budget = budget;
+    }
+
+    /**
+     * Class sequence starting with the first class and ending with the last one, a negative class leaves that end
+     * free. At least one end has to be fixed and the sequence has at least two classes.
+     */
+    int[] find(int firstClass, int lastClass) {
+        long startNanos = System.nanoTime();
+        int[] capacities = this.index.profileClasses().counts();
+        if (lastClass < 0) {
+            SequenceSearch search = forwardSearch(capacities, this.length, this.budget, null);
+            return search.findFrom(firstClass) ? search.path() : null;
+        }
+        if (firstClass < 0) {
+            SequenceSearch search = backwardSearch(capacities, this.length, null);
+            return search.findFrom(lastClass) ? reversed(search.path()) : null;
+        }
+
+        int backwardLength = this.length / 2;
+        Map<Integer, List<int[]>> backwardHalves = backwardLength > 1
+                ? backwardHalves(withoutOneOf(capacities, firstClass), lastClass, backwardLength)
+                : null;
+        if (isStopped() || backwardHalves != null && backwardHalves.isEmpty()) {
+            return null;
+        }
+        if (backwardHalves == null) {
+            backwardLength = 1;
+            backwardHalves = Map.of(lastClass, List.of(new int[]{lastClass}));
+        }
+        int forwardLength = this.length - backwardLength;
+        Join join = new Join(backwardHalves, capacities);
+        SearchBudget remaining = this.budget.remainingAfter(System.nanoTime() - startNanos, expansions());
+        SequenceSearch search = forwardSearch(withoutOneOf(capacities, lastClass), forwardLength, remaining, join);
+        if (!search.findFrom(firstClass)) {
+            return null;
+        }
+        int[] path = new int[this.length];
+        System.arraycopy(search.path(), 0, path, 0, forwardLength);
+        for (int i = 0; i < backwardLength; i++) {
+            path[this.length - 1 - i] = join.joined[i];
+        }
+        return path;
+    }
+
+    boolean isStopped() {
+        for (SequenceSearch search : this.searches) {
+            if (search.isStopped()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    List<SequenceSearch> searches() {
+        return this.searches;
+    }
+
+    private long expansions() {
+        long expansions = 0;
+        for (SequenceSearch search : this.searches) {
+            expansions += search.expansions();
+        }
+        return expansions;
+    }
+
+    /**
+     * Backward halves grouped by the class which the forward half has to connect into, {@code null} when there are
+     * too many of them.
+     */
+    private Map<Integer, List<int[]>> backwardHalves(int[] capacities, int lastClass, int backwardLength) {
+        Map<Integer, List<int[]>> halves = new HashMap<>();
+        int[] storedClasses = new int[1];
+        SequenceSearch search = backwardSearch(capacities, backwardLength, (path, used) -> {
+            halves.computeIfAbsent(path[backwardLength - 1], key -> new ArrayList<>()).add(path.clone());
+            storedClasses[0] += backwardLength;
+            return storedClasses[0] > MAX_BACKWARD_CLASSES - backwardLength; // stops before the next half overflows
+        });
+        boolean capped = search.findFrom(lastClass);
+        return capped ? null : halves;
+    }
+
+    // chain weights of the components stay computed with the full capacities, they are still valid upper bounds
+    private SequenceSearch forwardSearch(int[] capacities, int length, SearchBudget budget, SequenceSearch.Goal goal) {
+        return track(new SequenceSearch(this.index.graph(), this.index.components(), capacities, length, this.random,
+                budget, null, goal));
+    }
+
+    private SequenceSearch backwardSearch(int[] capacities, int length, SequenceSearch.Goal goal) {
+        return track(new SequenceSearch(this.index.reverseGraph(), this.index.reverseComponents(), capacities, length,
+                this.random, this.budget, null, goal));
+    }
+
+    private int[] withoutOneOf(int[] capacities, int profileClass) {
+        int[] reduced = capacities.clone();
+        reduced[profileClass]--;
+        return reduced;
+    }
+
+    private SequenceSearch track(SequenceSearch search) {
+        this.searches.add(search);
+        return search;
+    }
+
+    private int[] reversed(int[] path) {
+        int[] reversed = new int[path.length];
+        for (int i = 0; i < path.length; i++) {
+            reversed[path.length - 1 - i] = path[i];
+        }
+        return reversed;
+    }
+
+    private final class Join implements SequenceSearch.Goal {
+        private final Map<Integer, List<int[]>> backwardHalves;
+        private final int[] capacities;
+        private int[] joined;
+
+        private Join(Map<Integer, List<int[]>> backwardHalves, int[] capacities) {
+            this.backwardHalves = backwardHalves;
+            this.capacities = capacities;
+        }
+
+        @Override
+        public boolean reached(int[] path, int[] used) {
+            CompatibilityGraph graph = AnchoredSearch.this.index.graph();
+            int tail = path[path.length - 1];
+            for (int edge = graph.firstEdge(tail); edge < graph.endEdge(tail); edge++) {
+                List<int[]> halves = this.backwardHalves.get(graph.target(edge));
+                if (halves == null) {
+                    continue;
+                }
+                for (int[] half : halves) {
+                    if (fits(half, used)) {
+                        this.joined = half;
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean fits(int[] half, int[] used) {
+            boolean fits = true;
+            for (int node : half) {
+                fits &= ++used[node] <= this.capacities[node];
+            }
+            for (int node : half) {
+                used[node]--;
+            }
+            return fits;
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package com.datasacura.test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Directed compatibility graph in compressed sparse rows. Self-loops are kept: a node may stand for a class of
+ * interchangeable dungeons, which can follow each other. Rows live either in heap arrays or, for pools opened from
+ * a snapshot, in the mapped file, and graphs derived from an off-heap graph stay off the heap as well.
+ */
+final class CompatibilityGraph {
+    private static final int ROW_TILE = 64;
+    private static final int COLUMN_TILE = 4096;
+
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+
+    CompatibilityGraph(int[] offsets, int[] targets) {
+        this(IntBuffer.wrap(offsets), IntBuffer.wrap(targets));
+    }
+
+    CompatibilityGraph(IntBuffer offsets, IntBuffer targets) {
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    static CompatibilityGraph build(List<Dungeon> dungeons) {
+        // dungeons sharing an entrance profile are bucketed together and buckets are indexed by free entrance row,
+        // so every dungeon visits only the buckets reachable through its free exit rows instead of the whole pool
+        int numberOfDungeons = dungeons.size();
+        int numberOfRows = dungeons.get(0).getNumberOfRows();
+
+        Map<EdgeProfile, Integer> bucketByEntrance = new HashMap<>();
+        int[] bucketOf = new int[numberOfDungeons];
+        for (int node = 0; node < numberOfDungeons; node++) {
+            EdgeProfile entrance = dungeons.get(node).getEntrance();
+            Integer bucket = bucketByEntrance.get(entrance);
+            if (bucket == null) {
+                bucket = bucketByEntrance.size();
+                bucketByEntrance.put(entrance, bucket);
+            }
+            bucketOf[node] = bucket;
+        }
+        int numberOfBuckets = bucketByEntrance.size();
+        int[] bucketOffsets = new int[numberOfBuckets + 1];
+        int[] bucketMembers = groupBy(bucketOf, bucketOffsets);
+
+        int[] rowOffsets = new int[numberOfRows + 1];
+        for (int bucket = 0; bucket < numberOfBuckets; bucket++) {
+            EdgeProfile entrance = dungeons.get(bucketMembers[bucketOffsets[bucket]]).getEntrance();
+            for (int rowIndex = entrance.nextFreeRow(0); rowIndex >= 0; rowIndex = entrance.nextFreeRow(rowIndex + 1)) {
+                rowOffsets[rowIndex + 1]++;
+            }
+        }
+        for (int rowIndex = 0; rowIndex < numberOfRows; rowIndex++) {
+            rowOffsets[rowIndex + 1] += rowOffsets[rowIndex];
+        }
+        int[] bucketsByFreeRow = new int[rowOffsets[numberOfRows]];
+        int[] rowFill = Arrays.copyOf(rowOffsets, numberOfRows);
+        for (int bucket = 0; bucket < numberOfBuckets; bucket++) {
+            EdgeProfile entrance = dungeons.get(bucketMembers[bucketOffsets[bucket]]).getEntrance();
+            for (int rowIndex = entrance.nextFreeRow(0); rowIndex >= 0; rowIndex = entrance.nextFreeRow(rowIndex + 1)) {
+                bucketsByFreeRow[rowFill[rowIndex]++] = bucket;
+            }
+        }
+
+        int[] offsets = new int[numberOfDungeons + 1];
+        int[] targets = new int[numberOfDungeons];
+        int numberOfEdges = 0;
+        int[] bucketVisitedBy = new int[numberOfBuckets];
+        Arrays.fill(bucketVisitedBy, -1);
+        for (int node = 0; node < numberOfDungeons; node++) {
+            offsets[node] = numberOfEdges;
+            EdgeProfile exit = dungeons.get(node).getExit();
+            for (int rowIndex = exit.nextFreeRow(0); rowIndex >= 0; rowIndex = exit.nextFreeRow(rowIndex + 1)) {
+                for (int i = rowOffsets[rowIndex]; i < rowOffsets[rowIndex + 1]; i++) {
+                    int bucket = bucketsByFreeRow[i];
+                    if (bucketVisitedBy[bucket] == node) {
+                        continue;
+                    }
+                    bucketVisitedBy[bucket] = node;
+                    int bucketSize = bucketOffsets[bucket + 1] - bucketOffsets[bucket];
+                    if (targets.length < numberOfEdges + bucketSize) {
+                        targets = Arrays.copyOf(targets, Math.max(targets.length * 2, numberOfEdges + bucketSize));
+                    }
+                    for (int j = bucketOffsets[bucket]; j < bucketOffsets[bucket + 1]; j++) {
+                        targets[numberOfEdges++] = bucketMembers[j];
+                    }
+                }
+            }
+        }
+        offsets[numberOfDungeons] = numberOfEdges;
+        return new CompatibilityGraph(offsets, Arrays.copyOf(targets, numberOfEdges));
+    }
+
+    static CompatibilityGraph buildAllPairs(List<Dungeon> dungeons) {
+        int numberOfDungeons = dungeons.size();
+        int[] offsets = new int[numberOfDungeons + 1];
+        int[] targets = new int[numberOfDungeons];
+        int numberOfEdges = 0;
+        for (int node = 0; node < numberOfDungeons; node++) {
+            offsets[node] = numberOfEdges;
+            Dungeon dungeon = dungeons.get(node);
+            for (int other = 0; other < numberOfDungeons; other++) {
+                if (dungeon.isCompatibleWith(dungeons.get(other))) {
+                    if (numberOfEdges == targets.length) {
+                        targets = Arrays.copyOf(targets, targets.length * 2);
+                    }
+                    targets[numberOfEdges++] = other;
+                }
+            }
+        }
+        offsets[numberOfDungeons] = numberOfEdges;
+        return new CompatibilityGraph(offsets, Arrays.copyOf(targets, numberOfEdges));
+    }
+
+    /**
+     * Dense build for pools where most pairs are compatible and the bucket index has little to skip. Every pair is
+     * tested, but the exit and entrance words are packed into flat arrays and the matrix is computed in tiles of
+     * {@value #ROW_TILE} sources by {@value #COLUMN_TILE} targets, which keeps the targets' entrances in cache while
+     * the tiles are spread across the given pool.
+     */
+    static CompatibilityGraph buildTiled(List<Dungeon> dungeons, ForkJoinPool forkJoinPool) {
+        int numberOfDungeons = dungeons.size();
+        int numberOfWords = dungeons.get(0).getExit().numberOfWords();
+        long[] exits = new long[numberOfDungeons * numberOfWords];
+        long[] entrances = new long[numberOfDungeons * numberOfWords];
+        for (int node = 0; node < numberOfDungeons; node++) {
+            Dungeon dungeon = dungeons.get(node);
+            for (int wordIndex = 0; wordIndex < numberOfWords; wordIndex++) {
+                exits[node * numberOfWords + wordIndex] = dungeon.getExit().wordAt(wordIndex);
+                entrances[node * numberOfWords + wordIndex] = dungeon.getEntrance().wordAt(wordIndex);
+            }
+        }
+
+        int numberOfTiles = (numberOfDungeons + ROW_TILE - 1) / ROW_TILE;
+        int[][] tileTargets = new int[numberOfTiles][];
+        int[][] tileOffsets = new int[numberOfTiles][];
+        forkJoinPool.invoke(new MatrixTiles(exits, entrances, numberOfWords, numberOfDungeons, tileTargets,
+                tileOffsets, 0, numberOfTiles));
+
+        int[] offsets = new int[numberOfDungeons + 1];
+        int numberOfEdges = 0;
+        for (int tile = 0; tile < numberOfTiles; tile++) {
+            int[] rowOffsets = tileOffsets[tile];
+            for (int row = 0; row < rowOffsets.length - 1; row++) {
+                offsets[tile * ROW_TILE + row] = numberOfEdges + rowOffsets[row];
+            }
+            numberOfEdges += tileTargets[tile].length;
+        }
+        offsets[numberOfDungeons] = numberOfEdges;
+        int[] targets = new int[numberOfEdges];
+        for (int tile = 0; tile < numberOfTiles; tile++) {
+            System.arraycopy(tileTargets[tile], 0, targets, offsets[tile * ROW_TILE], tileTargets[tile].length);
+        }
+        return new CompatibilityGraph(offsets, targets);
+    }
+
+    /**
+     * Copy of this graph with the last of the given classes appended as a new node. Only the edges from and to the
+     * new node are evaluated, existing rows are copied as they are.
+     */
+    CompatibilityGraph withAppendedNode(ProfileClasses profileClasses) {
+        int newNode = size();
+        boolean[] toNewNode = new boolean[newNode];
+        int[] newNodeTargets = new int[newNode + 1];
+        int addedEdges = 0;
+        int numberOfNewNodeTargets = 0;
+        for (int node = 0; node <= newNode; node++) {
+            if (node < newNode && profileClasses.isCompatible(node, newNode)) {
+                toNewNode[node] = true;
+                addedEdges++;
+            }
+            if (profileClasses.isCompatible(newNode, node)) {
+                newNodeTargets[numberOfNewNodeTargets++] = node;
+            }
+        }
+        IntBuffer offsets = allocateLike(newNode + 2);
+        IntBuffer targets = allocateLike(numberOfEdges() + addedEdges + numberOfNewNodeTargets);
+        for (int node = 0; node < newNode; node++) {
+            offsets.put(node, targets.position());
+            targets.put(this.targets.duplicate().position(firstEdge(node)).limit(endEdge(node)));
+            if (toNewNode[node]) {
+                targets.put(newNode);
+            }
+        }
+        offsets.put(newNode, targets.position());
+        targets.put(newNodeTargets, 0, numberOfNewNodeTargets);
+        offsets.put(newNode + 1, targets.position());
+        return new CompatibilityGraph(offsets, targets.flip());
+    }
+
+    /**
+     * Graph with every edge turned around, searching it walks sequences from their end.
+     */
+    CompatibilityGraph reversed() {
+        IntBuffer offsets = allocateLike(size() + 1);
+        for (int edge = 0; edge < numberOfEdges(); edge++) {
+            int slot = target(edge) + 1;
+            offsets.put(slot, offsets.get(slot) + 1);
+        }
+        for (int node = 0; node < size(); node++) {
+            offsets.put(node + 1, offsets.get(node + 1) + offsets.get(node));
+        }
+        IntBuffer targets = allocateLike(numberOfEdges());
+        int[] cursors = new int[size()];
+        for (int node = 0; node < size(); node++) {
+            cursors[node] = offsets.get(node);
+        }
+        for (int node = 0; node < size(); node++) {
+            for (int edge = firstEdge(node); edge < endEdge(node); edge++) {
+                targets.put(cursors[target(edge)]++, node);
+            }
+        }
+        return new CompatibilityGraph(offsets, targets);
+    }
+
+    /**
+     * Copy restricted to the nodes with a non-negative new id, keeping the edges between them. New ids must be
+     * assigned in the node order.
+     */
+    CompatibilityGraph restrictedTo(int[] newIds, int newSize) {
+        int numberOfEdges = 0;
+        for (int node = 0; node < size(); node++) {
+            if (newIds[node] < 0) {
+                continue;
+            }
+            for (int edge = firstEdge(node); edge < endEdge(node); edge++) {
+                if (newIds[target(edge)] >= 0) {
+                    numberOfEdges++;
+                }
+            }
+        }
+        IntBuffer offsets = allocateLike(newSize + 1);
+        IntBuffer targets = allocateLike(numberOfEdges);
+        for (int node = 0; node < size(); node++) {
+            if (newIds[node] < 0) {
+                continue;
+            }
+            offsets.put(newIds[node], targets.position());
+            for (int edge = firstEdge(node); edge < endEdge(node); edge++) {
+                int target = newIds[target(edge)];
+                if (target >= 0) {
+                    targets.put(target);
+                }
+            }
+        }
+        offsets.put(newSize, numberOfEdges);
+        return new CompatibilityGraph(offsets, targets.flip());
+    }
+
+    /**
+     * Copy without the given node, the nodes after it move down by one.
+     */
+    CompatibilityGraph withoutNode(int removedNode) {
+        int[] newIds = new int[size()];
+        for (int node = 0; node < newIds.length; node++) {
+            newIds[node] = node < removedNode ? node : node == removedNode ? -1 : node - 1;
+        }
+        return restrictedTo(newIds, newIds.length - 1);
+    }
+
+    int size() {
+        return this.offsets.limit() - 1;
+    }
+
+    int numberOfEdges() {
+        return this.targets.limit();
+    }
+
+    int firstEdge(int node) {
+        return this.offsets.get(node);
+    }
+
+    int endEdge(int node) {
+        return this.offsets.get(node + 1);
+    }
+
+    int target(int edge) {
+        return this.targets.get(edge);
+    }
+
+    int degree(int node) {
+        return this.offsets.get(node + 1) - this.offsets.get(node);
+    }
+
+    private IntBuffer allocateLike(int capacity) {
+        if (!this.targets.isDirect()) {
+            return IntBuffer.allocate(capacity);
+        }
+        return ByteBuffer.allocateDirect(4 * capacity).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    static int[] groupBy(int[] groupOf, int[] groupOffsets) {
+        int numberOfGroups = groupOffsets.length - 1;
+        for (int group : groupOf) {
+            groupOffsets[group + 1]++;
+        }
+        for (int group = 0; group < numberOfGroups; group++) {
+            groupOffsets[group + 1] += groupOffsets[group];
+        }
+        int[] members = new int[groupOf.length];
+        int[] fill = Arrays.copyOf(groupOffsets, numberOfGroups);
+        for (int member = 0; member < groupOf.length; member++) {
+            members[fill[groupOf[member]]++] = member;
+        }
+        return members;
+    }
+
+    /**
+     * Splits the row tiles in halves down to a single one, which computes its part of the bit-matrix and turns it
+     * into target lists right away, so the whole matrix is never held in memory.
+     */
+    @SuppressWarnings("serial") // tasks are never serialized
+    private static final class MatrixTiles extends RecursiveAction {
+        private final long[] exits;
+        private final long[] entrances;
+        private final int numberOfWords;
+        private final int numberOfDungeons;
+        private final int[][] tileTargets;
+        private final int[][] tileOffsets;
+        private final int fromTile;
+        private final int toTile;
+
+        MatrixTiles(long[] exits, long[] entrances, int numberOfWords, int numberOfDungeons, int[][] tileTargets,
+                    int[][] tileOffsets, int fromTile, int toTile) {
+            this.exits = exits;
+            this.entrances = entrances;
+            this.numberOfWords = numberOfWords;
+            this.numberOfDungeons = numberOfDungeons;
+            this.tileTargets = tileTargets;
+            this.tileOffsets = tileOffsets;
+            this.fromTile = fromTile;
+            this.toTile = toTile;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.toTile - this.fromTile > 1) {
+                int middle = (this.fromTile + this.toTile) >>> 1;
+                invokeAll(new MatrixTiles(this.exits, this.entrances, this.numberOfWords, this.numberOfDungeons,
+                                this.tileTargets, this.tileOffsets, this.fromTile, middle),
+                        new MatrixTiles(this.exits, this.entrances, this.numberOfWords, this.numberOfDungeons,
+                                this.tileTargets, this.tileOffsets, middle, this.toTile));
+                return;
+            }
+            int firstRow = this.fromTile * ROW_TILE;
+            int numberOfRows = Math.min(ROW_TILE, this.numberOfDungeons - firstRow);
+            int matrixWords = (this.numberOfDungeons + 63) >>> 6;
+            long[] matrix = new long[numberOfRows * matrixWords];
+            for (int firstColumn = 0; firstColumn < this.numberOfDungeons; firstColumn += COLUMN_TILE) {
+                int endColumn = Math.min(firstColumn + COLUMN_TILE, this.numberOfDungeons);
+                for (int row = 0; row < numberOfRows; row++) {
+                    if (this.numberOfWords == 1) {
+                        fillSingleWord(matrix, row * matrixWords, this.exits[firstRow + row], firstColumn, endColumn);
+                    } else {
+                        fillMultiWord(matrix, row * matrixWords, firstRow + row, firstColumn, endColumn);
+                    }
+                }
+            }
+
+            int[] offsets = new int[numberOfRows + 1];
+            for (int row = 0; row < numberOfRows; row++) {
+                int degree = 0;
+                for (int wordIndex = 0; wordIndex < matrixWords; wordIndex++) {
+                    degree += Long.bitCount(matrix[row * matrixWords + wordIndex]);
+                }
+                offsets[row + 1] = offsets[row] + degree;
+            }
+            int[] targets = new int[offsets[numberOfRows]];
+            int numberOfEdges = 0;
+            for (int wordIndex = 0; wordIndex < matrix.length; wordIndex++) {
+                int columnBase = (wordIndex % matrixWords) << 6;
+                for (long word = matrix[wordIndex]; word != 0; word &= word - 1) {
+                    targets[numberOfEdges++] = columnBase + Long.numberOfTrailingZeros(word);
+                }
+            }
+            this.tileTargets[this.fromTile] = targets;
+            this.tileOffsets[this.fromTile] = offsets;
+        }
+
+        private void fillSingleWord(long[] matrix, int rowBase, long exit, int firstColumn, int endColumn) {
+            // branch-free, so the loop runs at the same speed whatever the density
+            for (int column = firstColumn; column < endColumn; column++) {
+                long compatible = ((exit & this.entrances[column]) != 0) ? 1L : 0L;
+                matrix[rowBase + (column >>> 6)] |= compatible << column;
+            }
+        }
+
+        private void fillMultiWord(long[] matrix, int rowBase, int node, int firstColumn, int endColumn) {
+            int exitBase = node * this.numberOfWords;
+            for (int column = firstColumn; column < endColumn; column++) {
+                int entranceBase = column * this.numberOfWords;
+                long shared = 0;
+                for (int wordIndex = 0; wordIndex < this.numberOfWords; wordIndex++) {
+                    shared |= this.exits[exitBase + wordIndex] & this.entrances[entranceBase + wordIndex];
+                }
+                long compatible = shared != 0 ? 1L : 0L;
+                matrix[rowBase + (column >>> 6)] |= compatible << column;
+            }
+        }
+    }
+}
@@ -1,16 +1,19 @@
 package com.datasacura.test;
 
+import java.nio.LongBuffer;
 import java.util.UUID;
 
 import static com.datasacura.test.Dungeon.Block.AIR;
-import static java.util.Arrays.stream;
+import static com.datasacura.test.Dungeon.Block.GROUND;
 
 public class Dungeon {
 
     private final UUID id;
-    private final Block[][] area;
+    private final LongBuffer cells; // one bit per cell in row-major order, set for AIR; on heap or memory-mapped
     private final int numberOfRows;
     private final int numberOfColumns;
+    private final EdgeProfile entrance;
+    private final EdgeProfile exit;
 
     public Dungeon(Block[][] area) {
         this(area, UUID.randomUUID());
@@ -18,33 +21,128 @@ public class Dungeon {
 
     private Dungeon(Block[][] area, UUID id) {
         validateArea(area);
-        this.numberOfRows = area.length;
-        this.numberOfColumns = area[0].length;
-        this.area = stream(area)
-                .map(Block[]::clone)
-                .toArray(Block[][]::new);
+        int numberOfRows = area.length;
+        int numberOfColumns = area[0].length;
+        long[] cells = new long[numberOfCellWords(numberOfRows, numberOfColumns)];
+        long[] entranceWords = EdgeProfile.wordsFor(numberOfRows);
+        long[] exitWords = EdgeProfile.wordsFor(numberOfRows);
+        long cellIndex = 0;
+        for (int rowIndex = 0; rowIndex < numberOfRows; rowIndex++) {
+            Block[] row = area[rowIndex];
+            for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++, cellIndex++) {
+                if (row[columnIndex] == AIR) {
+                    cells[(int) (cellIndex >>> 6)] |= 1L << cellIndex;
+                }
+            }
+            if (row[0] == AIR) {
+                EdgeProfile.setFreeAt(entranceWords, rowIndex);
+            }
+            if (row[numberOfColumns - 1] == AIR) {
+                EdgeProfile.setFreeAt(exitWords, rowIndex);
+            }
+        }
+        this.numberOfRows = numberOfRows;
+        this.numberOfColumns = numberOfColumns;
+        this.cells = LongBuffer.wrap(cells);
+        this.entrance = new EdgeProfile(entranceWords);
+        this.exit = new EdgeProfile(exitWords);
         this.id = id;
     }
 
+    private Dungeon(Dungeon source) { // all the state is immutable, so a copy shares it and skips validation
+        this.numberOfRows = source.numberOfRows;
+        this.numberOfColumns = source.numberOfColumns;
+        this.cells = source.cells;
+        this.entrance = source.entrance;
+        this.exit = source.exit;
+        this.id = source.id;
+    }
+
+    Dungeon(UUID id, int numberOfRows, int numberOfColumns, LongBuffer cells, EdgeProfile entrance, EdgeProfile exit) {
+        this.numberOfRows = numberOfRows;
+        this.numberOfColumns = numberOfColumns;
+        this.cells = cells;
+        this.entrance = entrance;
+        this.exit = exit;
+        this.id = id;
+    }
+
+    /**
+     * Wraps cells already packed in row-major order, the way streaming readers produce them.
+     */
+    static Dungeon ofCells(int numberOfRows, int numberOfColumns, long[] cells) {
+        if (numberOfRows <= 0 || numberOfColumns <= 0) {
+            throw new IllegalArgumentException("Area must have at least one element.");
+        }
+        long[] entranceWords = EdgeProfile.wordsFor(numberOfRows);
+        long[] exitWords = EdgeProfile.wordsFor(numberOfRows);
+        for (int rowIndex = 0; rowIndex < numberOfRows; rowIndex++) {
+            long firstCell = (long) rowIndex * numberOfColumns;
+            long lastCell = firstCell + numberOfColumns - 1;
+            if ((cells[(int) (firstCell >>> 6)] & (1L << firstCell)) != 0) {
+                EdgeProfile.setFreeAt(entranceWords, rowIndex);
+            }
+            if ((cells[(int) (lastCell >>> 6)] & (1L << lastCell)) != 0) {
+                EdgeProfile.setFreeAt(exitWords, rowIndex);
+            }
+        }
+        return new Dungeon(UUID.randomUUID(), numberOfRows, numberOfColumns, LongBuffer.wrap(cells),
+                new EdgeProfile(entranceWords), new EdgeProfile(exitWords));
+    }
+
+    UUID getId() {
+        return this.id;
+    }
+
+    LongBuffer getCells() {
+        return this.cells.duplicate();
+    }
+
+    static int numberOfCellWords(int numberOfRows, int numberOfColumns) {
+        return (int) (((long) numberOfRows * numberOfColumns + 63) >>> 6);
+    }
+
     public int getNumberOfRows() {
         return this.numberOfRows;
     }
 
+    public int getNumberOfColumns() {
+        return this.numberOfColumns;
+    }
+
+    public Block getBlockAt(int rowIndex, int columnIndex) {
+        if (rowIndex < 0 || rowIndex >= this.numberOfRows || columnIndex < 0 || columnIndex >= this.numberOfColumns) {
+            throw new IndexOutOfBoundsException("Cell [" + rowIndex + ", " + columnIndex + "] is outside of the area.");
+        }
+        long cellIndex = (long) rowIndex * this.numberOfColumns + columnIndex;
+        return (this.cells.get((int) (cellIndex >>> 6)) & (1L << cellIndex)) != 0 ? AIR : GROUND;
+    }
+
+    public Block[] getRow(int rowIndex) {
+        Block[] row = new Block[this.numberOfColumns];
+        for (int columnIndex = 0; columnIndex < this.numberOfColumns; columnIndex++) {
+            row[columnIndex] = getBlockAt(rowIndex, columnIndex);
+        }
+        return row;
+    }
+
+    EdgeProfile getEntrance() {
+        return this.entrance;
+    }
+
+    EdgeProfile getExit() {
+        return this.exit;
+    }
+
     public boolean isCompatibleWith(Dungeon otherDungeon) {
         if (otherDungeon == null) {
             throw new NullPointerException("Compatible dungeon must not be null.");
         }
-        if (otherDungeon.area.length != this.area.length) {
+        if (otherDungeon.numberOfRows != this.numberOfRows) {
             throw new IllegalStateException("Compatible dungeon must have the same amount of rows.");
         }
 
-        for (int rowIndex = 0; rowIndex < this.numberOfRows; rowIndex++) {
-            if (this.isExitFreeAt(rowIndex) && otherDungeon.isEntranceFreeAt(rowIndex)) {
-                return true;
-            }
-        }
-
-        return false;
+        return this.exit.intersects(otherDungeon.entrance);
     }
 
     public boolean isPassable() {
@@ -52,7 +150,7 @@ public class Dungeon {
     }
 
     public Dungeon copy() {
-        return new Dungeon(this.area, this.id);
+        return new Dungeon(this);
     }
 
     public enum Block {
@@ -60,38 +158,12 @@ public class Dungeon {
         AIR
     }
 
-    private Block getEntranceAt(int rowIndex) {
-        return this.area[rowIndex][0];
-    }
-
-    private Block getExitAt(int rowIndex) {
-        return this.area[rowIndex][this.numberOfColumns - 1];
-    }
-
-    private boolean isEntranceFreeAt(int rowIndex) {
-        return this.getEntranceAt(rowIndex) == AIR;
-    }
-
-    private boolean isExitFreeAt(int rowIndex) {
-        return this.getExitAt(rowIndex) == AIR;
-    }
-
     private boolean haveFreeEntrance() {
-        for (int rowIndex = 0; rowIndex < this.numberOfRows; rowIndex++) {
-            if (isEntranceFreeAt(rowIndex)) {
-                return true;
-            }
-        }
-        return false;
+        return !this.entrance.isEmpty();
     }
 
     private boolean haveFreeExit() {
-        for (int rowIndex = 0; rowIndex < this.numberOfRows; rowIndex++) {
-            if (isExitFreeAt(rowIndex)) {
-                return true;
-            }
-        }
-        return false;
+        return !this.exit.isEmpty();
     }
 
     private void validateArea(Block[][] area) {
@@ -116,7 +188,7 @@ public class Dungeon {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Dungeon dungeon = (Dungeon) o;
-        return this.id == dungeon.id;
+        return this.id.equals(dungeon.id);
     }
 
     @Override
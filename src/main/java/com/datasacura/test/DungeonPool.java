@@ -1,79 +1,468 @@
 package com.datasacura.test;
 
-import java.util.ArrayDeque;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Deque;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import static com.datasacura.test.SequenceResult.Status.BUDGET_EXHAUSTED;
+import static com.datasacura.test.SequenceResult.Status.FOUND;
+import static com.datasacura.test.SequenceResult.Status.IMPOSSIBLE;
 import static java.util.Collections.emptyList;
 import static java.util.Objects.requireNonNull;
-import static java.util.function.Function.identity;
-import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
 
 public class DungeonPool {
-    private final List<Dungeon> dungeons;
-    private final Map<Dungeon, List<Dungeon>> dungeonCompatibilityGraph;
+    private static final int DEFAULT_LOOKAHEAD = 16;
+
+    private volatile PoolIndex index; // readers take one snapshot per call, writers replace it under the pool lock
+    private volatile SearchListener listener;
+    private final List<Runnable> updateListeners = new CopyOnWriteArrayList<>();
 
     public DungeonPool(List<Dungeon> dungeons) {
+        long startNanos = System.nanoTime();
         validateDungeons(dungeons);
-        this.dungeons = dungeons.stream() // making a defence copy
-                .map(Dungeon::copy)
-                .collect(toList());
-        this.dungeonCompatibilityGraph = buildDungeonCompatibilityGraph(this.dungeons);
+        // dungeons are immutable, so the pool shares them without a copy
+        ProfileClasses.Collector classes = new ProfileClasses.Collector();
+        for (Dungeon dungeon : dungeons) {
+            if (!classes.add(dungeon)) {
+                throw new IllegalArgumentException("Dungeons list contains duplicate dungeons.");
+            }
+        }
+        this.index = new PoolIndex(classes.toProfileClasses(), dungeons.get(0).getNumberOfRows(), null, startNanos);
+        SearchProbe.graphBuilt(null, this.index);
+    }
+
+    private DungeonPool(PoolIndex index, SearchListener listener) {
+        this.index = index;
+        this.listener = listener;
+        SearchProbe.graphBuilt(listener, index);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Loads a pool written by {@link #save(Path)}. Dungeon grids stay in the memory-mapped file instead of the heap.
+     */
+    public static DungeonPool load(Path path) throws IOException {
+        requireNonNull(path, "Path must not be null.");
+        return new DungeonPool(PoolSnapshot.load(path), null);
+    }
+
+    public void save(Path path) throws IOException {
+        requireNonNull(path, "Path must not be null.");
+        PoolSnapshot.save(this.index, path);
+    }
+
+    /**
+     * No sequence longer than this bound can be built from the pool, exact for pools of up to 16 dungeons.
+     */
+    public int getUpperBoundLength() {
+        return this.index.upperBoundLength();
+    }
+
+    public int size() {
+        return this.index.size();
+    }
+
+    /**
+     * Listener for search and graph statistics, {@code null} turns the instrumentation off.
+     */
+    public void setSearchListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    PoolIndex index() {
+        return this.index;
+    }
+
+    /**
+     * Called under the pool lock right after every update, with the new snapshot already in place.
+     */
+    void addUpdateListener(Runnable listener) {
+        this.updateListeners.add(listener);
+    }
+
+    void removeUpdateListener(Runnable listener) {
+        this.updateListeners.remove(listener);
+    }
+
+    public GraphStatistics getGraphStatistics() {
+        return GraphStatistics.of(this.index);
+    }
+
+    public synchronized void add(Dungeon dungeon) {
+        PoolIndex index = this.index;
+        requireNonNull(dungeon, "Dungeon must not be null.");
+        if (!dungeon.isPassable()) {
+            throw new IllegalArgumentException("Dungeon must be passable.");
+        }
+        if (dungeon.getNumberOfRows() != index.numberOfRows()) {
+            throw new IllegalArgumentException("Dungeons must have same number of rows to be compatible.");
+        }
+        if (index.profileClasses().contains(dungeon)) {
+            throw new IllegalArgumentException("Dungeon is already in the pool.");
+        }
+        this.index = index.with(dungeon);
+        SearchProbe.graphBuilt(this.listener, this.index);
+        this.updateListeners.forEach(Runnable::run);
+    }
+
+    public synchronized boolean remove(Dungeon dungeon) {
+        PoolIndex index = this.index;
+        requireNonNull(dungeon, "Dungeon must not be null.");
+        if (!index.profileClasses().contains(dungeon)) {
+            return false;
+        }
+        if (index.size() == 1) {
+            throw new IllegalStateException("Dungeon pool must keep at least one dungeon.");
+        }
+        this.index = index.without(dungeon);
+        SearchProbe.graphBuilt(this.listener, this.index);
+        this.updateListeners.forEach(Runnable::run);
+        return true;
     }
 
     public List<Dungeon> createXSequence(int length) {
+        SequenceResult result = createXSequence(length, SearchBudget.unlimited());
+        if (!result.isFound()) {
+            throw new IllegalStateException("It is not possible to build dungeon sequence with provided length.");
+        }
+        return new ArrayList<>(result.getSequence());
+    }
+
+    public SequenceResult createXSequence(int length, SearchBudget budget) {
+        return createXSequence(length, budget, SearchStrategy.EXHAUSTIVE);
+    }
+
+    /**
+     * Same as {@link #createXSequence(int, SearchBudget)} with a choice of search. Random walks which give up hand
+     * the rest of the budget to the exhaustive search, so impossibility is still proved.
+     */
+    public SequenceResult createXSequence(int length, SearchBudget budget, SearchStrategy strategy) {
+        requireNonNull(budget, "Search budget must not be null.");
+        requireNonNull(strategy, "Search strategy must not be null.");
+        PoolIndex index = this.index;
         if (length == 0) {
-            return emptyList();
+            return new SequenceResult(FOUND, emptyList());
         }
-        if (length > dungeons.size()) {
-            throw new IllegalArgumentException("Expected sequence length is greater than number of available dungeons.");
+        validateSequenceLength(index, length);
+        SearchProbe probe = SearchProbe.start(this.listener);
+        if (length > index.upperBoundLength()) {
+            if (probe != null) {
+                probe.complete(length, IMPOSSIBLE, emptyList());
+            }
+            return new SequenceResult(IMPOSSIBLE, emptyList());
         }
 
-        shuffle();  // alternative could be to have set of compatible dungeons which (in theory) does not guarantee order,
-                    // but in real life it will not provide required randomness to the step of next dungeon choosing
+        // every call draws its own generator, so concurrent calls never touch shared state
+        SplittableRandom random = new SplittableRandom();
+        return strategy == SearchStrategy.RANDOM_WALK
+                ? randomWalk(index, length, budget, random, probe)
+                : exhaustiveSearch(index, length, budget, random, probe);
+    }
 
-        for (Dungeon startingDungeon : this.dungeons) {
-            Deque<List<Dungeon>> paths = new ArrayDeque<>();
-            Deque<Set<Dungeon>> visitedSets = new ArrayDeque<>(); // memory-performance tradeoff for long paths
+    public List<Dungeon> createXSequence(int length, Dungeon first, Dungeon last) {
+        SequenceResult result = createXSequence(length, first, last, SearchBudget.unlimited());
+        if (!result.isFound()) {
+            throw new IllegalStateException("It is not possible to build dungeon sequence with provided length.");
+        }
+        return new ArrayList<>(result.getSequence());
+    }
 
-            paths.push(List.of(startingDungeon));
-            visitedSets.push(Set.of(startingDungeon));
+    /**
+     * Sequence which starts with {@code first} and ends with {@code last}, either may be {@code null} to leave
+     * that end free. Unlike the unanchored search, a sequence which is not found comes without a partial one.
+     */
+    public SequenceResult createXSequence(int length, Dungeon first, Dungeon last, SearchBudget budget) {
+        requireNonNull(budget, "Search budget must not be null.");
+        if (first == null && last == null) {
+            return createXSequence(length, budget);
+        }
+        PoolIndex index = this.index;
+        ProfileClasses profileClasses = index.profileClasses();
+        if (first != null && !profileClasses.contains(first) || last != null && !profileClasses.contains(last)) {
+            throw new IllegalArgumentException("Anchor dungeon is not in the pool.");
+        }
+        validateSequenceLength(index, length);
+        if (length == 1 && (first == null || last == null || first.equals(last))) {
+            return new SequenceResult(FOUND, List.of(first != null ? first : last));
+        }
+        if (length <= 1 || length > index.upperBoundLength() || first != null && first.equals(last)) {
+            return new SequenceResult(IMPOSSIBLE, emptyList());
+        }
+
+        SearchProbe probe = SearchProbe.start(this.listener);
+        SplittableRandom random = new SplittableRandom();
+        AnchoredSearch search = new AnchoredSearch(index, length, random, budget);
+        int[] path = search.find(first != null ? profileClasses.classOf(first) : -1,
+                last != null ? profileClasses.classOf(last) : -1);
+        SequenceResult.Status status = path != null ? FOUND : search.isStopped() ? BUDGET_EXHAUSTED : IMPOSSIBLE;
+        if (probe != null) {
+            probe.complete(length, status, search.searches());
+        }
+        return new SequenceResult(status, path != null ? profileClasses.draw(path, random, first, last) : emptyList());
+    }
+
+    public Iterator<Dungeon> endlessSequence(int noRepeatWindow) {
+        return endlessSequence(noRepeatWindow, DEFAULT_LOOKAHEAD);
+    }
+
+    /**
+     * Endless sequence of compatible dungeons where no dungeon repeats within {@code noRepeatWindow} consecutive
+     * ones. Every emitted dungeon has a continuation of {@code lookahead} more dungeons planned behind it; the
+     * iterator only ends when the pool has no continuation at all. Works on the pool as it was when called.
+     */
+    public Iterator<Dungeon> endlessSequence(int noRepeatWindow, int lookahead) {
+        PoolIndex index = this.index;
+        if (noRepeatWindow < 1 || noRepeatWindow > index.size()) {
+            throw new IllegalArgumentException("No-repeat window must be between one and number of dungeons.");
+        }
+        if (lookahead < 1) {
+            throw new IllegalArgumentException("Lookahead must be positive.");
+        }
+        return new EndlessSequence(index, noRepeatWindow, lookahead, new SplittableRandom());
+    }
+
+    public Stream<Dungeon> endlessStream(int noRepeatWindow) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(endlessSequence(noRepeatWindow),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
 
-            while (!paths.isEmpty()) {
-                List<Dungeon> path = paths.pop();
-                if (path.size() == length) {
-                    return new ArrayList<>(path);
+    public List<List<Dungeon>> createXSequences(int count, int length) {
+        return createXSequences(this.index, count, length);
+    }
+
+    List<List<Dungeon>> createXSequences(PoolIndex index, int count, int length) {
+        validateBatch(index, count, length);
+        List<List<Dungeon>> sequences = createXSequences(index, count, length, SearchBudget.unlimited());
+        if (sequences.size() < count) {
+            throw new IllegalStateException("It is not possible to build dungeon sequence with provided length.");
+        }
+        return sequences;
+    }
+
+    /**
+     * Up to {@code count} sequences found within one budget, fewer when the budget runs out or the length cannot
+     * be built. The length is expected to be validated already.
+     */
+    List<List<Dungeon>> createXSequences(PoolIndex index, int count, int length, SearchBudget budget) {
+        List<List<Dungeon>> sequences = new ArrayList<>(count);
+        if (count == 0 || length > index.upperBoundLength()) {
+            return sequences;
+        }
+        SearchProbe probe = SearchProbe.start(this.listener);
+        SplittableRandom random = new SplittableRandom();
+        SequenceSearch search = new SequenceSearch(index, length, random, budget, null);
+        boolean filled = fillXSequences(index, search, sequences, count, length, random);
+        if (probe != null) {
+            probe.complete(length, filled ? FOUND : search.isStopped() ? BUDGET_EXHAUSTED : IMPOSSIBLE,
+                    List.of(search));
+        }
+        return sequences;
+    }
+
+    public List<List<Dungeon>> createXSequencesInParallel(int count, int length) {
+        return createXSequencesInParallel(count, length, ForkJoinPool.commonPool());
+    }
+
+    public List<List<Dungeon>> createXSequencesInParallel(int count, int length, ForkJoinPool forkJoinPool) {
+        requireNonNull(forkJoinPool, "Fork join pool must not be null.");
+        PoolIndex index = this.index;
+        validateBatch(index, count, length);
+        SearchProbe probe = SearchProbe.start(this.listener);
+
+        // every worker fills its own slice with its own search scratch, so workers share nothing but the pool
+        SplittableRandom random = new SplittableRandom();
+        int numberOfWorkers = Math.max(1, Math.min(forkJoinPool.getParallelism(), count));
+        List<ForkJoinTask<List<List<Dungeon>>>> workers = new ArrayList<>(numberOfWorkers);
+        List<SequenceSearch> searches = new ArrayList<>(numberOfWorkers);
+        for (int i = 0; i < numberOfWorkers; i++) {
+            int workerCount = count / numberOfWorkers + (i < count % numberOfWorkers ? 1 : 0);
+            SplittableRandom workerRandom = random.split();
+            SequenceSearch search = new SequenceSearch(index, length, workerRandom, SearchBudget.unlimited(), null);
+            searches.add(search);
+            workers.add(forkJoinPool.submit(() -> {
+                List<List<Dungeon>> sequences = new ArrayList<>(workerCount);
+                if (!fillXSequences(index, search, sequences, workerCount, length, workerRandom)) {
+                    throw new IllegalStateException(
+                            "It is not possible to build dungeon sequence with provided length.");
                 }
-                Set<Dungeon> visited = visitedSets.pop();
-                Dungeon lastDungeon = path.get(path.size() - 1);
-                for (Dungeon dungeon : this.dungeonCompatibilityGraph.get(lastDungeon)) {
-                    if (!visited.contains(dungeon)) {
-                        List<Dungeon> newPath = new ArrayList<>(path);
-                        Set<Dungeon> newVisited = new HashSet<>(visited);
-                        newPath.add(dungeon);
-                        newVisited.add(dungeon);
-                        paths.push(newPath);
-                        visitedSets.push(newVisited);
+                return sequences;
+            }));
+        }
+        List<List<Dungeon>> sequences = new ArrayList<>(count);
+        workers.forEach(worker -> sequences.addAll(worker.join()));
+        if (probe != null) {
+            probe.complete(length, FOUND, searches);
+        }
+        return sequences;
+    }
+
+    public List<Dungeon> createXSequenceInParallel(int length) {
+        return createXSequenceInParallel(length, ForkJoinPool.commonPool());
+    }
+
+    public List<Dungeon> createXSequenceInParallel(int length, ForkJoinPool forkJoinPool) {
+        requireNonNull(forkJoinPool, "Fork join pool must not be null.");
+        PoolIndex index = this.index;
+        if (length == 0) {
+            return emptyList();
+        }
+        validateSequenceLength(index, length);
+        if (length > index.upperBoundLength()) {
+            throw new IllegalStateException("It is not possible to build dungeon sequence with provided length.");
+        }
+        SearchProbe probe = SearchProbe.start(this.listener);
+
+        SplittableRandom random = new SplittableRandom();
+        int[] startingOrder = new int[index.graph().size()];
+        Arrays.setAll(startingOrder, node -> node);
+        for (int i = startingOrder.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int node = startingOrder[i];
+            startingOrder[i] = startingOrder[j];
+            startingOrder[j] = node;
+        }
+
+        // workers pull starting classes from a shared cursor, so a dead-end start keeps only its own worker busy;
+        // the first found sequence cancels everybody else
+        AtomicInteger nextStart = new AtomicInteger();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicReference<int[]> found = new AtomicReference<>();
+        int numberOfWorkers = Math.min(forkJoinPool.getParallelism(), startingOrder.length);
+        List<ForkJoinTask<?>> workers = new ArrayList<>(numberOfWorkers);
+        List<SequenceSearch> searches = new ArrayList<>(numberOfWorkers);
+        for (int i = 0; i < numberOfWorkers; i++) {
+            SequenceSearch search = new SequenceSearch(index, length, random.split(), SearchBudget.unlimited(),
+                    cancelled);
+            searches.add(search);
+            workers.add(forkJoinPool.submit(() -> {
+                for (int start = nextStart.getAndIncrement(); start < startingOrder.length && !cancelled.get();
+                     start = nextStart.getAndIncrement()) {
+                    if (search.findFrom(startingOrder[start])) {
+                        if (found.compareAndSet(null, search.path())) {
+                            cancelled.set(true);
+                        }
+                        return;
                     }
                 }
-            }
+            }));
+        }
+        workers.forEach(ForkJoinTask::join);
+
+        int[] path = found.get();
+        if (probe != null) {
+            probe.complete(length, path != null ? FOUND : IMPOSSIBLE, searches);
+        }
+        if (path != null) {
+            return toDungeons(index, path, random);
         }
         throw new IllegalStateException("It is not possible to build dungeon sequence with provided length.");
     }
 
-    private Map<Dungeon, List<Dungeon>> buildDungeonCompatibilityGraph(List<Dungeon> dungeons) {
-        return dungeons.stream()
-                .collect(toMap(identity(),
-                        dungeon -> dungeons.stream()
-                                .filter(other -> !dungeon.equals(other))
-                                .filter(dungeon::isCompatibleWith)
-                                .collect(toList())));
+    /**
+     * Adds {@code count} sequences, {@code false} as soon as the search gives up.
+     */
+    private boolean fillXSequences(PoolIndex index, SequenceSearch search, List<List<Dungeon>> sequences, int count,
+                                   int length, SplittableRandom random) {
+        if (length == 0) {
+            for (int i = 0; i < count; i++) {
+                sequences.add(emptyList());
+            }
+            return true;
+        }
+        for (int i = 0; i < count; i++) {
+            int[] path = search.find();
+            if (path == null) {
+                return false;
+            }
+            sequences.add(toDungeons(index, path, random));
+        }
+        return true;
+    }
+
+    private SequenceResult exhaustiveSearch(PoolIndex index, int length, SearchBudget budget,
+                                            SplittableRandom random, SearchProbe probe) {
+        SequenceSearch search = new SequenceSearch(index, length, random, budget, null);
+        int[] path = search.find();
+        SequenceResult.Status status = path != null ? FOUND : search.isStopped() ? BUDGET_EXHAUSTED : IMPOSSIBLE;
+        if (probe != null) {
+            probe.complete(length, status, List.of(search));
+        }
+        return new SequenceResult(status, toDungeons(index, path != null ? path : search.bestPath(), random));
+    }
+
+    private SequenceResult randomWalk(PoolIndex index, int length, SearchBudget budget, SplittableRandom random,
+                                      SearchProbe probe) {
+        long startNanos = System.nanoTime();
+        RandomWalkSampler sampler = new RandomWalkSampler(index, length, random, budget);
+        int[] path = sampler.find();
+        SequenceResult.Status status;
+        int[] partial = sampler.bestPath();
+        long nodesExpanded = sampler.steps();
+        long backtracks = sampler.truncated();
+        int maxDepth = partial.length;
+        int startsTried = sampler.restarts();
+        if (path != null) {
+            status = FOUND;
+            maxDepth = length;
+        } else if (sampler.isStopped()) {
+            status = BUDGET_EXHAUSTED;
+        } else {
+            SearchBudget remaining = budget.remainingAfter(System.nanoTime() - startNanos, sampler.steps());
+            SequenceSearch search = new SequenceSearch(index, length, random, remaining, null);
+            path = search.find();
+            status = path != null ? FOUND : search.isStopped() ? BUDGET_EXHAUSTED : IMPOSSIBLE;
+            if (search.maxDepth() > partial.length) {
+                partial = search.bestPath();
+            }
+            nodesExpanded += search.expansions();
+            backtracks += search.backtracks();
+            maxDepth = Math.max(maxDepth, search.maxDepth());
+            startsTried += search.startsTried();
+        }
+        if (probe != null) {
+            probe.complete(length, status, nodesExpanded, backtracks, maxDepth, startsTried);
+        }
+        return new SequenceResult(status, toDungeons(index, path != null ? path : partial, random));
+    }
+
+    private List<Dungeon> toDungeons(PoolIndex index, int[] classSequence, SplittableRandom random) {
+        return index.profileClasses().draw(classSequence, random);
+    }
+
+    private void validateBatch(PoolIndex index, int count, int length) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Number of sequences must not be negative.");
+        }
+        validateSequenceLength(index, length);
+        if (count > 0 && length > index.upperBoundLength()) {
+            throw new IllegalStateException("It is not possible to build dungeon sequence with provided length.");
+        }
+    }
+
+    void validateSequenceLength(PoolIndex index, int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Sequence length must not be negative.");
+        }
+        if (length > index.size()) {
+            throw new IllegalArgumentException("Expected sequence length is greater than number of available dungeons.");
+        }
     }
 
     private void validateDungeons(List<Dungeon> dungeons) {
@@ -94,8 +483,59 @@ public class DungeonPool {
         }
     }
 
-    private void shuffle() {
-        Collections.shuffle(this.dungeons);
-        this.dungeonCompatibilityGraph.values().forEach(Collections::shuffle);
+    /**
+     * Collects dungeons one at a time, validating each on arrival, so a streaming reader never has to materialise
+     * its input as a list next to the pool.
+     */
+    public static final class Builder {
+        private final ProfileClasses.Collector classes = new ProfileClasses.Collector();
+        private int numberOfRows;
+        private SearchListener listener;
+        private ForkJoinPool graphBuildPool;
+
+        private Builder() {
+        }
+
+        public Builder add(Dungeon dungeon) {
+            requireNonNull(dungeon, "Dungeons list contains null-dungeon.");
+            if (!dungeon.isPassable()) {
+                throw new IllegalArgumentException("Dungeon list contains non-passable dungeon.");
+            }
+            if (size() > 0 && this.numberOfRows != dungeon.getNumberOfRows()) {
+                throw new IllegalArgumentException("Dungeons must have same number of rows to be compatible.");
+            }
+            if (!this.classes.add(dungeon)) {
+                throw new IllegalArgumentException("Dungeons list contains duplicate dungeons.");
+            }
+            this.numberOfRows = dungeon.getNumberOfRows();
+            return this;
+        }
+
+        public Builder searchListener(SearchListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * Builds the compatibility graph as a dense bit-matrix in tiles across the given pool, which pays off for
+         * large pools where most dungeons are compatible with each other.
+         */
+        public Builder parallelGraphBuild(ForkJoinPool forkJoinPool) {
+            this.graphBuildPool = requireNonNull(forkJoinPool, "Fork join pool must not be null.");
+            return this;
+        }
+
+        public int size() {
+            return this.classes.numberOfDungeons();
+        }
+
+        public DungeonPool build() {
+            if (size() == 0) {
+                throw new IllegalArgumentException("Dungeons list must have at least one element");
+            }
+            long startNanos = System.nanoTime();
+            return new DungeonPool(new PoolIndex(this.classes.toProfileClasses(), this.numberOfRows,
+                    this.graphBuildPool, startNanos), this.listener);
+        }
     }
 }
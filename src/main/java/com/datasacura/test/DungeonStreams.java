@@ -0,0 +1,211 @@
+package com.datasacura.test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Streams dungeons in and out of files one at a time, holding a single fixed buffer and the dungeon being read.
+ * <p>
+ * ASCII files hold grids of {@code #} for ground and {@code .} for air, dungeons separated by blank lines.
+ * Binary files start with a magic and a version, followed by records of little-endian {@code int} rows,
+ * {@code int} columns and the row-major cell bits packed into {@code long} words, set for air. Record headers
+ * are checked before anything is allocated for them, so a corrupt file fails with an {@link IOException}.
+ */
+public final class DungeonStreams {
+    static final int MAGIC = 0x534E4744; // "DGNS" read as little-endian bytes
+    static final int VERSION = 1;
+    static final long MAX_CELLS = 1L << 28; // 32 MiB of cell words per dungeon record
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private DungeonStreams() {
+    }
+
+    public static DungeonPool readAsciiPool(Path path) throws IOException {
+        DungeonPool.Builder builder = DungeonPool.builder();
+        readAscii(path, builder::add);
+        return builder.build();
+    }
+
+    public static DungeonPool readBinaryPool(Path path) throws IOException {
+        DungeonPool.Builder builder = DungeonPool.builder();
+        readBinary(path, builder::add);
+        return builder.build();
+    }
+
+    public static void readAscii(Path path, Consumer<Dungeon> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            readAscii(channel, consumer);
+        }
+    }
+
+    public static void readBinary(Path path, Consumer<Dungeon> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            readBinary(channel, consumer);
+        }
+    }
+
+    public static void writeBinary(Iterable<Dungeon> dungeons, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            writeBinary(dungeons, channel);
+        }
+    }
+
+    public static void readAscii(ReadableByteChannel channel, Consumer<Dungeon> consumer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long[] cells = new long[1];
+        long cellIndex = 0;
+        int numberOfRows = 0;
+        int numberOfColumns = 0;
+        int column = 0;
+        int line = 1;
+        while (channel.read(buffer) != -1) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                byte symbol = buffer.get();
+                if (symbol == '#' || symbol == '.') {
+                    if (numberOfRows > 0 && column == numberOfColumns) {
+                        throw new IOException("Dungeon row at line " + line + " is longer than the first one.");
+                    }
+                    if (cellIndex >>> 6 == cells.length) {
+                        cells = Arrays.copyOf(cells, cells.length * 2);
+                    }
+                    if (symbol == '.') {
+                        cells[(int) (cellIndex >>> 6)] |= 1L << cellIndex;
+                    }
+                    cellIndex++;
+                    column++;
+                } else if (symbol == '\n') {
+                    if (column > 0) {
+                        if (numberOfRows == 0) {
+                            numberOfColumns = column;
+                        } else if (column != numberOfColumns) {
+                            throw new IOException("Dungeon row at line " + line + " is shorter than the first one.");
+                        }
+                        numberOfRows++;
+                    } else if (numberOfRows > 0) {
+                        consumer.accept(toDungeon(numberOfRows, numberOfColumns, cells));
+                        cellIndex = 0;
+                        numberOfRows = 0;
+                    }
+                    column = 0;
+                    line++;
+                } else if (symbol != '\r' && symbol != ' ' && symbol != '\t') {
+                    throw new IOException("Unexpected symbol '" + (char) symbol + "' at line " + line + ".");
+                }
+            }
+            buffer.clear();
+        }
+        if (column > 0) {
+            if (numberOfRows > 0 && column != numberOfColumns) {
+                throw new IOException("Dungeon row at line " + line + " is shorter than the first one.");
+            }
+            numberOfColumns = column;
+            numberOfRows++;
+        }
+        if (numberOfRows > 0) {
+            consumer.accept(toDungeon(numberOfRows, numberOfColumns, cells));
+        }
+    }
+
+    public static void readBinary(ReadableByteChannel channel, Consumer<Dungeon> consumer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+        if (!fill(channel, buffer, 8) || buffer.getInt() != MAGIC) {
+            throw new IOException("Input is not a dungeon stream.");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported dungeon stream version " + version + ".");
+        }
+        while (fill(channel, buffer, 8)) {
+            int numberOfRows = buffer.getInt();
+            int numberOfColumns = buffer.getInt();
+            if (numberOfRows <= 0 || numberOfColumns <= 0) {
+                throw new IOException("Dungeon record has an empty area.");
+            }
+            if ((long) numberOfRows * numberOfColumns > MAX_CELLS) {
+                throw new IOException("Dungeon record of " + numberOfRows + " x " + numberOfColumns
+                        + " cells is larger than " + MAX_CELLS + " cells.");
+            }
+            long[] cells = new long[Dungeon.numberOfCellWords(numberOfRows, numberOfColumns)];
+            for (int wordIndex = 0; wordIndex < cells.length; wordIndex++) {
+                if (!fill(channel, buffer, 8)) {
+                    throw new EOFException("Dungeon record is truncated.");
+                }
+                cells[wordIndex] = buffer.getLong();
+            }
+            consumer.accept(Dungeon.ofCells(numberOfRows, numberOfColumns, cells));
+        }
+    }
+
+    public static void writeBinary(Iterable<Dungeon> dungeons, WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION);
+        for (Dungeon dungeon : dungeons) {
+            if (buffer.remaining() < 8) {
+                flush(channel, buffer);
+            }
+            buffer.putInt(dungeon.getNumberOfRows()).putInt(dungeon.getNumberOfColumns());
+            for (LongBuffer cells = dungeon.getCells(); cells.hasRemaining(); ) {
+                if (buffer.remaining() < 8) {
+                    flush(channel, buffer);
+                }
+                buffer.putLong(cells.get());
+            }
+        }
+        flush(channel, buffer);
+    }
+
+    /**
+     * Copies the cells out of the reusable row buffer and clears it for the next dungeon.
+     */
+    private static Dungeon toDungeon(int numberOfRows, int numberOfColumns, long[] cells) {
+        int numberOfWords = Dungeon.numberOfCellWords(numberOfRows, numberOfColumns);
+        Dungeon dungeon = Dungeon.ofCells(numberOfRows, numberOfColumns, Arrays.copyOf(cells, numberOfWords));
+        Arrays.fill(cells, 0, numberOfWords, 0L);
+        return dungeon;
+    }
+
+    /**
+     * Makes at least {@code size} bytes readable, returns {@code false} on a clean end of input.
+     */
+    private static boolean fill(ReadableByteChannel channel, ByteBuffer buffer, int size) throws IOException {
+        if (buffer.remaining() >= size) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < size) {
+            if (channel.read(buffer) == -1) {
+                buffer.flip();
+                if (buffer.hasRemaining()) {
+                    throw new EOFException("Dungeon record is truncated.");
+                }
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    private static void flush(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,80 @@
+package com.datasacura.test;
+
+import java.util.Arrays;
+
+final class EdgeProfile {
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+
+    private final long[] words;
+
+    EdgeProfile(long[] words) {
+        this.words = words;
+    }
+
+    int numberOfWords() {
+        return this.words.length;
+    }
+
+    long wordAt(int wordIndex) {
+        return this.words[wordIndex];
+    }
+
+    static long[] wordsFor(int numberOfRows) {
+        return new long[((numberOfRows - 1) >>> ADDRESS_BITS_PER_WORD) + 1];
+    }
+
+    static void setFreeAt(long[] words, int rowIndex) {
+        words[rowIndex >>> ADDRESS_BITS_PER_WORD] |= 1L << rowIndex;
+    }
+
+    boolean intersects(EdgeProfile other) {
+        long[] otherWords = other.words;
+        if (this.words.length == 1) { // single word covers up to 64 rows, which is the common case
+            return (this.words[0] & otherWords[0]) != 0;
+        }
+        for (int wordIndex = 0; wordIndex < this.words.length; wordIndex++) {
+            if ((this.words[wordIndex] & otherWords[wordIndex]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int nextFreeRow(int fromRowIndex) {
+        int wordIndex = fromRowIndex >>> ADDRESS_BITS_PER_WORD;
+        if (wordIndex >= this.words.length) {
+            return -1;
+        }
+        long word = this.words[wordIndex] & (-1L << fromRowIndex);
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == this.words.length) {
+                return -1;
+            }
+            word = this.words[wordIndex];
+        }
+    }
+
+    boolean isEmpty() {
+        for (long word : this.words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Arrays.equals(this.words, ((EdgeProfile) o).words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.words);
+    }
+}
@@ -0,0 +1,220 @@
+package com.datasacura.test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+/**
+ * Never-ending sequence which keeps a plan of the next {@code lookahead} classes: a dungeon is only emitted when a
+ * compatible continuation of the whole lookahead exists behind it. Emitting shifts the plan by one and a step of
+ * depth-first search over the last frame tops it up again, O(degree) work in the common case. A search which
+ * exceeds its step limit keeps the longest plan it saw.
+ * <p>
+ * No dungeon repeats within {@code noRepeatWindow} consecutive dungeons: a class may appear in any such window at
+ * most as often as it has dungeons, and dungeons of a class are handed out round-robin. Memory depends on the
+ * window, the lookahead and the pool, never on how long the run goes.
+ */
+final class EndlessSequence implements Iterator<Dungeon> {
+    private static final int PLAN_STEPS_PER_LOOKAHEAD = 64;
+
+    private final CompatibilityGraph graph;
+    private final ProfileClasses profileClasses;
+    private final int[] capacities;
+    private final int noRepeatWindow;
+    private final int lookahead;
+    private final SplittableRandom random;
+    private final int[] planned; // ring by depth, depth 0 is the next dungeon to emit
+    private final int[][] frames; // candidates for the class at the same depth, ring like the plan
+    private final int[] frameEnds;
+    private final int[] cursors;
+    private final boolean[] frameReady;
+    private final int[] bestPlan;
+    private final int[] history; // classes of the emitted and planned dungeons, newest last
+    private final int[] inWindow;
+    private final int[][] rotations; // shuffled member indexes, members are built only when emitted
+    private final int[] rotationCursors;
+    private int planStart;
+    private int planLength;
+    private long position; // number of classes in the history
+    private int root = -1;
+
+    EndlessSequence(PoolIndex index, int noRepeatWindow, int lookahead, SplittableRandom random) {
+        this.graph = index.graph();
+        this.profileClasses = index.profileClasses();
+        this.capacities = this.profileClasses.counts();
+        this.noRepeatWindow = noRepeatWindow;
+        this.lookahead = lookahead;
+        this.random = random;
+        this.planned = new int[lookahead];
+        this.frames = new int[lookahead][];
+        this.frameEnds = new int[lookahead];
+        this.cursors = new int[lookahead];
+        this.frameReady = new boolean[lookahead];
+        this.bestPlan = new int[lookahead];
+        this.history = new int[noRepeatWindow + lookahead];
+        this.inWindow = new int[this.graph.size()];
+        this.rotations = new int[this.graph.size()][];
+        this.rotationCursors = new int[this.graph.size()];
+        plan();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return this.planLength > 0;
+    }
+
+    @Override
+    public Dungeon next() {
+        if (this.planLength == 0) {
+            throw new NoSuchElementException("Dungeon pool has no continuation of the sequence.");
+        }
+        int profileClass = this.planned[slot(0)];
+        this.root = profileClass;
+        this.frameReady[slot(0)] = false;
+        this.planStart = slot(1);
+        this.planLength--;
+        plan();
+        return draw(profileClass);
+    }
+
+    private void plan() {
+        int bestLength = this.planLength;
+        copyPlan(this.planned, this.bestPlan);
+        int steps = PLAN_STEPS_PER_LOOKAHEAD * this.lookahead;
+        while (this.planLength < this.lookahead) {
+            if (steps-- == 0) {
+                restore(this.bestPlan, bestLength);
+                return;
+            }
+            int depth = this.planLength;
+            if (!this.frameReady[slot(depth)]) {
+                buildFrame(depth);
+            }
+            int next = nextCandidate(depth);
+            if (next >= 0) {
+                push(next);
+                this.planned[slot(depth)] = next;
+                this.planLength++;
+                if (this.planLength < this.lookahead) {
+                    this.frameReady[slot(this.planLength)] = false;
+                }
+                if (this.planLength > bestLength) {
+                    bestLength = this.planLength;
+                    copyPlan(this.planned, this.bestPlan);
+                }
+            } else if (depth == 0) {
+                restore(this.bestPlan, bestLength); // even the root has no continuation left to try
+                return;
+            } else {
+                this.frameReady[slot(depth)] = false;
+                pop(this.planned[slot(depth - 1)]);
+                this.planLength--;
+            }
+        }
+    }
+
+    private void buildFrame(int depth) {
+        int slot = slot(depth);
+        int parent = depth == 0 ? this.root : this.planned[slot(depth - 1)];
+        int size = parent < 0 ? this.graph.size() : this.graph.degree(parent);
+        if (this.frames[slot] == null || this.frames[slot].length < size) {
+            this.frames[slot] = new int[Math.max(size, 16)];
+        }
+        int[] frame = this.frames[slot];
+        if (parent < 0) {
+            Arrays.setAll(frame, node -> node < size ? node : 0);
+        } else {
+            for (int edge = this.graph.firstEdge(parent), i = 0; i < size; edge++, i++) {
+                frame[i] = this.graph.target(edge);
+            }
+        }
+        this.frameEnds[slot] = size;
+        this.cursors[slot] = 0;
+        this.frameReady[slot] = true;
+    }
+
+    private int nextCandidate(int depth) {
+        // lazy Fisher-Yates, so only the candidates which are actually tried get shuffled
+        int slot = slot(depth);
+        int[] frame = this.frames[slot];
+        int end = this.frameEnds[slot];
+        while (this.cursors[slot] < end) {
+            int cursor = this.cursors[slot]++;
+            int index = cursor + this.random.nextInt(end - cursor);
+            int candidate = frame[index];
+            frame[index] = frame[cursor];
+            frame[cursor] = candidate;
+            if (this.inWindow[candidate] < this.capacities[candidate]) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    private void restore(int[] plan, int length) {
+        while (this.planLength > 0) {
+            pop(this.planned[slot(this.planLength - 1)]);
+            this.planLength--;
+        }
+        Arrays.fill(this.frameReady, false);
+        for (int depth = 0; depth < length; depth++) {
+            push(plan[depth]);
+            this.planned[slot(depth)] = plan[depth];
+            this.planLength++;
+        }
+    }
+
+    private void copyPlan(int[] source, int[] target) {
+        for (int depth = 0; depth < this.planLength; depth++) {
+            target[depth] = source[slot(depth)];
+        }
+    }
+
+    /**
+     * Appends a class to the history; the window then holds the last {@code noRepeatWindow - 1} classes, which is
+     * what the next class has to fit next to.
+     */
+    private void push(int profileClass) {
+        this.history[historySlot(this.position)] = profileClass;
+        this.inWindow[profileClass]++;
+        long leaving = this.position - this.noRepeatWindow + 1;
+        if (leaving >= 0) {
+            this.inWindow[this.history[historySlot(leaving)]]--;
+        }
+        this.position++;
+    }
+
+    private void pop(int profileClass) {
+        this.position--;
+        long leaving = this.position - this.noRepeatWindow + 1;
+        if (leaving >= 0) {
+            this.inWindow[this.history[historySlot(leaving)]]++;
+        }
+        this.inWindow[profileClass]--;
+    }
+
+    private Dungeon draw(int profileClass) {
+        int[] rotation = this.rotations[profileClass];
+        if (rotation == null) {
+            rotation = new int[this.profileClasses.counts()[profileClass]];
+            for (int i = 0; i < rotation.length; i++) { // inside-out Fisher-Yates
+                int j = this.random.nextInt(i + 1);
+                rotation[i] = rotation[j];
+                rotation[j] = i;
+            }
+            this.rotations[profileClass] = rotation;
+        }
+        int cursor = this.rotationCursors[profileClass];
+        this.rotationCursors[profileClass] = cursor + 1 == rotation.length ? 0 : cursor + 1;
+        return this.profileClasses.member(profileClass, rotation[cursor]);
+    }
+
+    private int slot(int depth) {
+        return (this.planStart + depth) % this.lookahead;
+    }
+
+    private int historySlot(long position) {
+        return (int) (position % this.history.length);
+    }
+}
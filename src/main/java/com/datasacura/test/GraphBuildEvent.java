@@ -0,0 +1,30 @@
+package com.datasacura.test;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("com.datasacura.test.GraphBuild")
+@Label("Compatibility Graph Build")
+@Category("Dungeon Pool")
+@Description("New compatibility graph snapshot after pool construction or update")
+final class GraphBuildEvent extends Event {
+    @Label("Dungeons")
+    int numberOfDungeons;
+
+    @Label("Nodes")
+    int numberOfNodes;
+
+    @Label("Edges")
+    int numberOfEdges;
+
+    @Label("Max Degree")
+    int maxDegree;
+
+    @Label("Build Time")
+    @Timespan
+    long buildTime;
+}
@@ -0,0 +1,86 @@
+package com.datasacura.test;
+
+import java.util.Arrays;
+
+/**
+ * Shape of the compatibility graph. Its nodes are profile classes, dungeons sharing both edge profiles.
+ */
+public final class GraphStatistics {
+    private final int numberOfDungeons;
+    private final int numberOfNodes;
+    private final int numberOfEdges;
+    private final int minDegree;
+    private final int maxDegree;
+    private final int[] degreeHistogram;
+    private final long buildTimeNanos;
+
+    private GraphStatistics(int numberOfDungeons, int numberOfNodes, int numberOfEdges, int minDegree,
+                            int maxDegree, int[] degreeHistogram, long buildTimeNanos) {
+        this.numberOfDungeons = numberOfDungeons;
+        this.numberOfNodes = numberOfNodes;
+        this.numberOfEdges = numberOfEdges;
+        this.minDegree = minDegree;
+        this.maxDegree = maxDegree;
+        this.degreeHistogram = degreeHistogram;
+        this.buildTimeNanos = buildTimeNanos;
+    }
+
+    static GraphStatistics of(PoolIndex index) {
+        CompatibilityGraph graph = index.graph();
+        int minDegree = graph.size() == 0 ? 0 : Integer.MAX_VALUE;
+        int maxDegree = 0;
+        int[] degreeHistogram = new int[Integer.SIZE + 1];
+        for (int node = 0; node < graph.size(); node++) {
+            int degree = graph.degree(node);
+            minDegree = Math.min(minDegree, degree);
+            maxDegree = Math.max(maxDegree, degree);
+            degreeHistogram[Integer.SIZE - Integer.numberOfLeadingZeros(degree)]++;
+        }
+        int numberOfBuckets = Integer.SIZE + 1 - Integer.numberOfLeadingZeros(maxDegree);
+        return new GraphStatistics(index.size(), graph.size(), graph.numberOfEdges(), minDegree, maxDegree,
+                Arrays.copyOf(degreeHistogram, numberOfBuckets), index.buildTimeNanos());
+    }
+
+    public int getNumberOfDungeons() {
+        return this.numberOfDungeons;
+    }
+
+    public int getNumberOfNodes() {
+        return this.numberOfNodes;
+    }
+
+    public int getNumberOfEdges() {
+        return this.numberOfEdges;
+    }
+
+    public int getMinDegree() {
+        return this.minDegree;
+    }
+
+    public int getMaxDegree() {
+        return this.maxDegree;
+    }
+
+    /**
+     * Number of nodes per power-of-two degree bucket: bucket 0 holds degree 0, bucket {@code k} holds degrees
+     * from {@code 2^(k-1)} to {@code 2^k - 1}.
+     */
+    public int[] getDegreeHistogram() {
+        return this.degreeHistogram.clone();
+    }
+
+    /**
+     * Time spent building the graph snapshot together with its search index.
+     */
+    public long getBuildTimeNanos() {
+        return this.buildTimeNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "GraphStatistics{numberOfDungeons=" + this.numberOfDungeons + ", numberOfNodes=" + this.numberOfNodes
+                + ", numberOfEdges=" + this.numberOfEdges + ", minDegree=" + this.minDegree
+                + ", maxDegree=" + this.maxDegree + ", degreeHistogram=" + Arrays.toString(this.degreeHistogram)
+                + ", buildTimeNanos=" + this.buildTimeNanos + '}';
+    }
+}
@@ -0,0 +1,47 @@
+package com.datasacura.test;
+
+final class LengthBounds {
+    private static final int MAX_EXACT_POOL_SIZE = 16;
+
+    private LengthBounds() {
+    }
+
+    static int upperBoundOf(ProfileClasses profileClasses, StronglyConnectedComponents components) {
+        int numberOfDungeons = profileClasses.numberOfDungeons();
+        if (numberOfDungeons <= MAX_EXACT_POOL_SIZE) {
+            return numberOfDungeons == 0 ? 0 : longestSequenceOf(CompatibilityGraph.build(profileClasses.dungeons()));
+        }
+        return Math.min(numberOfDungeons, components.maxChainWeight());
+    }
+
+    private static int longestSequenceOf(CompatibilityGraph graph) {
+        // bitmask dynamic programming: ends[mask] holds every dungeon a sequence covering exactly mask can end with
+        int numberOfNodes = graph.size();
+        int[] successors = new int[numberOfNodes];
+        for (int node = 0; node < numberOfNodes; node++) {
+            for (int edge = graph.firstEdge(node); edge < graph.endEdge(node); edge++) {
+                successors[node] |= 1 << graph.target(edge);
+            }
+        }
+        int[] ends = new int[1 << numberOfNodes];
+        for (int node = 0; node < numberOfNodes; node++) {
+            ends[1 << node] = 1 << node;
+        }
+        int longest = 1;
+        for (int mask = 1; mask < ends.length; mask++) {
+            int maskEnds = ends[mask];
+            if (maskEnds == 0) {
+                continue;
+            }
+            longest = Math.max(longest, Integer.bitCount(mask));
+            for (int remainingEnds = maskEnds; remainingEnds != 0; remainingEnds &= remainingEnds - 1) {
+                int next = successors[Integer.numberOfTrailingZeros(remainingEnds)] & ~mask;
+                for (; next != 0; next &= next - 1) {
+                    int nextBit = next & -next;
+                    ends[mask | nextBit] |= nextBit;
+                }
+            }
+        }
+        return longest;
+    }
+}
@@ -0,0 +1,121 @@
+package com.datasacura.test;
+
+import java.nio.LongBuffer;
+import java.util.UUID;
+
+/**
+ * Profile class members of a snapshot, read straight from its mapped dungeon table and profiles. A dungeon is built
+ * as a view over the mapped cells each time it is asked for and is not kept, so the heap holds only the dungeons
+ * callers hold. Classes are looked up through the open-addressing class index of the snapshot, comparing the
+ * mapped profile words in place.
+ */
+final class MappedDungeons {
+    private final MappedRegion metadata;
+    private final long profilesOffset;
+    private final long classIndexOffset;
+    private final int classIndexSize;
+    private final long dungeonsOffset;
+    private final MappedRegion cells;
+    private final long cellsOffset;
+    private final int numberOfRows;
+    private final int profileWords;
+    private final int[] classStarts;
+
+    MappedDungeons(MappedRegion metadata, long profilesOffset, long classIndexOffset, int classIndexSize,
+                   long dungeonsOffset, MappedRegion cells, long cellsOffset, int numberOfRows, int profileWords,
+                   int[] counts) {
+        this.metadata = metadata;
+        this.profilesOffset = profilesOffset;
+        this.classIndexOffset = classIndexOffset;
+        this.classIndexSize = classIndexSize;
+        this.dungeonsOffset = dungeonsOffset;
+        this.cells = cells;
+        this.cellsOffset = cellsOffset;
+        this.numberOfRows = numberOfRows;
+        this.profileWords = profileWords;
+        this.classStarts = new int[counts.length + 1];
+        for (int profileClass = 0; profileClass < counts.length; profileClass++) {
+            this.classStarts[profileClass + 1] = this.classStarts[profileClass] + counts[profileClass];
+        }
+    }
+
+    int size() {
+        return this.classStarts.length - 1;
+    }
+
+    int count(int profileClass) {
+        return this.classStarts[profileClass + 1] - this.classStarts[profileClass];
+    }
+
+    int profileWords() {
+        return this.profileWords;
+    }
+
+    /**
+     * Class of the given profile pair, -1 when the snapshot has none.
+     */
+    int classOf(EdgeProfile entrance, EdgeProfile exit) {
+        int mask = this.classIndexSize - 1;
+        for (int slot = PoolSnapshot.profileHash(entrance, exit) & mask; ; slot = (slot + 1) & mask) {
+            int profileClass = this.metadata.getInt(this.classIndexOffset + 4L * slot);
+            if (profileClass < 0 || hasProfiles(profileClass, entrance, exit)) {
+                return profileClass;
+            }
+        }
+    }
+
+    long entranceWord(int profileClass, int wordIndex) {
+        return this.metadata.getLong(this.profilesOffset + 8L * (2L * this.profileWords * profileClass + wordIndex));
+    }
+
+    long exitWord(int profileClass, int wordIndex) {
+        return this.metadata.getLong(this.profilesOffset
+                + 8L * (2L * this.profileWords * profileClass + this.profileWords + wordIndex));
+    }
+
+    EdgeProfile entrance(int profileClass) {
+        return readProfile(this.profilesOffset + 16L * this.profileWords * profileClass);
+    }
+
+    EdgeProfile exit(int profileClass) {
+        return readProfile(this.profilesOffset + 16L * this.profileWords * profileClass + 8L * this.profileWords);
+    }
+
+    Dungeon dungeon(int profileClass, int member) {
+        long position = entryPosition(profileClass, member);
+        UUID id = new UUID(this.metadata.getLong(position), this.metadata.getLong(position + 8));
+        int numberOfColumns = this.metadata.getInt(position + 16);
+        long cellPosition = this.metadata.getLong(position + 24) - this.cellsOffset;
+        LongBuffer cells = this.cells.slice(cellPosition,
+                8 * Dungeon.numberOfCellWords(this.numberOfRows, numberOfColumns)).asLongBuffer();
+        return new Dungeon(id, this.numberOfRows, numberOfColumns, cells, entrance(profileClass), exit(profileClass));
+    }
+
+    boolean hasId(int profileClass, int member, UUID id) {
+        long position = entryPosition(profileClass, member);
+        return this.metadata.getLong(position) == id.getMostSignificantBits()
+                && this.metadata.getLong(position + 8) == id.getLeastSignificantBits();
+    }
+
+    private boolean hasProfiles(int profileClass, EdgeProfile entrance, EdgeProfile exit) {
+        for (int wordIndex = 0; wordIndex < this.profileWords; wordIndex++) {
+            if (entranceWord(profileClass, wordIndex) != entrance.wordAt(wordIndex)
+                    || exitWord(profileClass, wordIndex) != exit.wordAt(wordIndex)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long entryPosition(int profileClass, int member) {
+        return this.dungeonsOffset + (long) PoolSnapshot.DUNGEON_ENTRY_SIZE * (this.classStarts[profileClass] + member);
+    }
+
+    private EdgeProfile readProfile(long position) {
+        long[] words = new long[this.profileWords];
+        for (int wordIndex = 0; wordIndex < this.profileWords; wordIndex++) {
+            words[wordIndex] = this.metadata.getLong(position + 8L * wordIndex);
+        }
+        return new EdgeProfile(words);
+    }
+}
@@ -0,0 +1,57 @@
+package com.datasacura.test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only, little-endian region of a file mapped in {@link #SEGMENT_SIZE} segments, since a single mapping can not
+ * exceed 2 GB. Positions are relative to the region start. Reads must be aligned to their size, which keeps every
+ * int and long inside one segment.
+ */
+final class MappedRegion {
+    static final long SEGMENT_SIZE = 1L << 30;
+    private static final int SEGMENT_BITS = 30;
+
+    private final ByteBuffer[] segments;
+    private final long size;
+
+    private MappedRegion(ByteBuffer[] segments, long size) {
+        this.segments = segments;
+        this.size = size;
+    }
+
+    static MappedRegion map(FileChannel channel, long offset, long size) throws IOException {
+        ByteBuffer[] segments = new ByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+        for (int segment = 0; segment < segments.length; segment++) {
+            long segmentStart = segment * SEGMENT_SIZE;
+            segments[segment] = channel.map(FileChannel.MapMode.READ_ONLY, offset + segmentStart,
+                    Math.min(SEGMENT_SIZE, size - segmentStart)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new MappedRegion(segments, size);
+    }
+
+    long size() {
+        return this.size;
+    }
+
+    int getInt(long position) {
+        return this.segments[(int) (position >>> SEGMENT_BITS)].getInt((int) (position & (SEGMENT_SIZE - 1)));
+    }
+
+    long getLong(long position) {
+        return this.segments[(int) (position >>> SEGMENT_BITS)].getLong((int) (position & (SEGMENT_SIZE - 1)));
+    }
+
+    /**
+     * View of {@code size} bytes, which the writer must have kept inside one segment.
+     */
+    ByteBuffer slice(long position, int size) {
+        ByteBuffer slice = this.segments[(int) (position >>> SEGMENT_BITS)].duplicate();
+        int offset = (int) (position & (SEGMENT_SIZE - 1));
+        slice.position(offset);
+        slice.limit(offset + size);
+        return slice.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,143 @@
+package com.datasacura.test;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Immutable snapshot of everything the search needs. Mutations build a new snapshot which shares whatever the
+ * mutation does not touch, so readers holding the previous one keep a consistent view.
+ * <p>
+ * A mutation costs O(classes + edges): adding a dungeon of a known profile or removing one of several members only
+ * changes a class count, which keeps the graph and its components and recomputes the chain weights; a new profile
+ * appends a node and a class emptied by a removal is dropped with its edges, both of which copy the graph and
+ * decompose it again.
+ */
+final class PoolIndex {
+    private final ProfileClasses profileClasses;
+    private final CompatibilityGraph graph;
+    private final StronglyConnectedComponents components;
+    private volatile CompatibilityGraph reverseGraph; // built on the first search walking back from the end
+    private volatile StronglyConnectedComponents reverseComponents;
+    private final int numberOfRows;
+    private final int upperBoundLength;
+    private final long buildTimeNanos;
+
+    /**
+     * With a fork-join pool the graph is built as a tiled bit-matrix across it, otherwise through the bucket index.
+     */
+    PoolIndex(ProfileClasses profileClasses, int numberOfRows, ForkJoinPool graphBuildPool, long startNanos) {
+        this(profileClasses, null, null, null, numberOfRows, graphBuildPool, startNanos);
+    }
+
+    /**
+     * Build time is counted from the given start, so it covers whatever the caller did to produce the classes and
+     * the graph.
+     */
+    PoolIndex(ProfileClasses profileClasses, CompatibilityGraph graph, int numberOfRows, long startNanos) {
+        this(profileClasses, graph, null, null, numberOfRows, null, startNanos);
+    }
+
+    /**
+     * Components and the reverse graph, when given, must belong to the given graph.
+     */
+    private PoolIndex(ProfileClasses profileClasses, CompatibilityGraph graph, StronglyConnectedComponents components,
+                      CompatibilityGraph reverseGraph, int numberOfRows, ForkJoinPool graphBuildPool,
+                      long startNanos) {
+        this.profileClasses = profileClasses;
+        if (graph != null) {
+            this.graph = graph;
+        } else if (graphBuildPool != null) {
+            this.graph = CompatibilityGraph.buildTiled(profileClasses.representatives(), graphBuildPool);
+        } else {
+            this.graph = CompatibilityGraph.build(profileClasses.representatives());
+        }
+        this.components = components != null
+                ? components.withWeights(this.graph, profileClasses.counts())
+                : StronglyConnectedComponents.of(this.graph, profileClasses.counts());
+        this.reverseGraph = reverseGraph;
+        this.numberOfRows = numberOfRows;
+        this.upperBoundLength = LengthBounds.upperBoundOf(profileClasses, this.components);
+        this.buildTimeNanos = System.nanoTime() - startNanos;
+    }
+
+    PoolIndex with(Dungeon dungeon) {
+        long startNanos = System.nanoTime();
+        ProfileClasses profileClasses = this.profileClasses.with(dungeon);
+        if (profileClasses.size() == this.profileClasses.size()) { // a known profile only changes the class count
+            return withCounts(profileClasses, startNanos);
+        }
+        return new PoolIndex(profileClasses, this.graph.withAppendedNode(profileClasses), this.numberOfRows,
+                startNanos);
+    }
+
+    PoolIndex without(Dungeon dungeon) {
+        long startNanos = System.nanoTime();
+        ProfileClasses profileClasses = this.profileClasses.without(dungeon);
+        if (profileClasses.size() == this.profileClasses.size()) {
+            return withCounts(profileClasses, startNanos);
+        }
+        return new PoolIndex(profileClasses, this.graph.withoutNode(this.profileClasses.classOf(dungeon)),
+                this.numberOfRows, startNanos);
+    }
+
+    private PoolIndex withCounts(ProfileClasses profileClasses, long startNanos) {
+        return new PoolIndex(profileClasses, this.graph, this.components, this.reverseGraph, this.numberOfRows, null,
+                startNanos);
+    }
+
+    int size() {
+        return this.profileClasses.numberOfDungeons();
+    }
+
+    int numberOfRows() {
+        return this.numberOfRows;
+    }
+
+    ProfileClasses profileClasses() {
+        return this.profileClasses;
+    }
+
+    CompatibilityGraph graph() {
+        return this.graph;
+    }
+
+    StronglyConnectedComponents components() {
+        return this.components;
+    }
+
+    CompatibilityGraph reverseGraph() {
+        CompatibilityGraph reverseGraph = this.reverseGraph;
+        if (reverseGraph == null) {
+            synchronized (this) {
+                reverseGraph = this.reverseGraph;
+                if (reverseGraph == null) {
+                    reverseGraph = this.graph.reversed();
+                    this.reverseGraph = reverseGraph;
+                }
+            }
+        }
+        return reverseGraph;
+    }
+
+    StronglyConnectedComponents reverseComponents() {
+        StronglyConnectedComponents reverseComponents = this.reverseComponents;
+        if (reverseComponents == null) {
+            CompatibilityGraph reverseGraph = reverseGraph();
+            synchronized (this) {
+                reverseComponents = this.reverseComponents;
+                if (reverseComponents == null) {
+                    reverseComponents = this.components.reversed(reverseGraph, this.profileClasses.counts());
+                    this.reverseComponents = reverseComponents;
+                }
+            }
+        }
+        return reverseComponents;
+    }
+
+    int upperBoundLength() {
+        return this.upperBoundLength;
+    }
+
+    long buildTimeNanos() {
+        return this.buildTimeNanos;
+    }
+}
@@ -0,0 +1,362 @@
+package com.datasacura.test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Versioned binary pool snapshot, little-endian, every section 8-byte aligned:
+ * <pre>
+ * header        magic, version, rows, profile words, classes, edges, dungeons, class index size, cells section offset
+ * classes       int count per class, int[classes + 1] CSR offsets, int[edges] CSR targets
+ * profiles      long[profile words] entrance and exit per class
+ * class index   int[class index size] linear-probing table of classes by profile hash, -1 for an empty slot
+ * dungeons      per dungeon in class order: long id msb, long id lsb, int columns, int unused, long cells offset
+ * cells         packed dungeon grids, none of them crossing a segment boundary
+ * </pre>
+ * Saving writes a sibling temporary file and atomically moves it over the target, so a pool loaded from the same
+ * path, or any other process mapping it, keeps reading the old file until it is unmapped.
+ * Loading maps the file and reads the graph and the profile classes in place. Dungeons are built on top of the
+ * mapped cells only when drawn, so neither grids nor per-dungeon objects are kept on the heap.
+ */
+final class PoolSnapshot {
+    static final int MAGIC = 0x444E4750; // "PGND" read as little-endian bytes
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 64;
+    static final int DUNGEON_ENTRY_SIZE = 32;
+
+    private PoolSnapshot() {
+    }
+
+    static void save(PoolIndex index, Path path) throws IOException {
+        ProfileClasses profileClasses = index.profileClasses();
+        CompatibilityGraph graph = index.graph();
+        int numberOfClasses = profileClasses.size();
+        int[] counts = profileClasses.counts();
+        int numberOfDungeons = profileClasses.numberOfDungeons();
+        int profileWords = EdgeProfile.wordsFor(index.numberOfRows()).length;
+
+        long profilesOffset = align(HEADER_SIZE + 4L * numberOfClasses + 4L * (numberOfClasses + 1)
+                + 4L * graph.numberOfEdges());
+        long classIndexOffset = profilesOffset + 16L * profileWords * numberOfClasses;
+        int[] classIndex = classIndexOf(profileClasses);
+        long dungeonsOffset = align(classIndexOffset + 4L * classIndex.length);
+        long cellsOffset = dungeonsOffset + (long) DUNGEON_ENTRY_SIZE * numberOfDungeons;
+
+        // loaded pools keep their snapshot mapped, so the file at path must never be truncated in place
+        Path temporary = path.resolveSibling(path.getFileName() + "." + Long.toHexString(System.nanoTime()) + ".tmp");
+        boolean moved = false;
+        try (FileChannel channel = FileChannel.open(temporary, CREATE_NEW, WRITE);
+             SnapshotWriter writer = new SnapshotWriter(channel)) {
+            writer.putInt(MAGIC);
+            writer.putInt(VERSION);
+            writer.putInt(index.numberOfRows());
+            writer.putInt(profileWords);
+            writer.putInt(numberOfClasses);
+            writer.putInt(graph.numberOfEdges());
+            writer.putInt(numberOfDungeons);
+            writer.putInt(classIndex.length);
+            writer.putLong(cellsOffset);
+            writer.padTo(HEADER_SIZE);
+
+            for (int profileClass = 0; profileClass < numberOfClasses; profileClass++) {
+                writer.putInt(counts[profileClass]);
+            }
+            for (int node = 0; node <= numberOfClasses; node++) {
+                writer.putInt(node < numberOfClasses ? graph.firstEdge(node) : graph.numberOfEdges());
+            }
+            for (int edge = 0; edge < graph.numberOfEdges(); edge++) {
+                writer.putInt(graph.target(edge));
+            }
+            writer.padTo(profilesOffset);
+
+            for (int profileClass = 0; profileClass < numberOfClasses; profileClass++) {
+                Dungeon representative = profileClasses.member(profileClass, 0);
+                writer.putProfile(representative.getEntrance());
+                writer.putProfile(representative.getExit());
+            }
+            for (int profileClass : classIndex) {
+                writer.putInt(profileClass);
+            }
+            writer.padTo(dungeonsOffset);
+
+            long cellPosition = cellsOffset;
+            for (int profileClass = 0; profileClass < numberOfClasses; profileClass++) {
+                for (int member = 0; member < counts[profileClass]; member++) {
+                    Dungeon dungeon = profileClasses.member(profileClass, member);
+                    long cellBytes = 8L * Dungeon.numberOfCellWords(dungeon.getNumberOfRows(), dungeon.getNumberOfColumns());
+                    cellPosition = segmentFitting(cellsOffset, cellPosition, cellBytes);
+                    writer.putLong(dungeon.getId().getMostSignificantBits());
+                    writer.putLong(dungeon.getId().getLeastSignificantBits());
+                    writer.putInt(dungeon.getNumberOfColumns());
+                    writer.putInt(0);
+                    writer.putLong(cellPosition);
+                    cellPosition += cellBytes;
+                }
+            }
+
+            cellPosition = cellsOffset;
+            for (int profileClass = 0; profileClass < numberOfClasses; profileClass++) {
+                for (int member = 0; member < counts[profileClass]; member++) {
+                    LongBuffer cells = profileClasses.member(profileClass, member).getCells();
+                    cellPosition = segmentFitting(cellsOffset, cellPosition, 8L * cells.remaining());
+                    writer.padTo(cellPosition);
+                    while (cells.hasRemaining()) {
+                        writer.putLong(cells.get());
+                    }
+                    cellPosition = writer.position();
+                }
+            }
+            writer.flush();
+            channel.force(true);
+            Files.move(temporary, path, ATOMIC_MOVE, REPLACE_EXISTING);
+            moved = true;
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    static PoolIndex load(Path path) throws IOException {
+        long startNanos = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), HEADER_SIZE))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.remaining() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+                throw new IOException("File is not a dungeon pool snapshot: " + path);
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported dungeon pool snapshot version " + header.getInt(4) + ": " + path);
+            }
+            int numberOfRows = header.getInt(8);
+            int profileWords = header.getInt(12);
+            int numberOfClasses = header.getInt(16);
+            int numberOfEdges = header.getInt(20);
+            int numberOfDungeons = header.getInt(24);
+            int classIndexSize = header.getInt(28);
+            long cellsOffset = header.getLong(32);
+            if (numberOfRows <= 0 || profileWords != EdgeProfile.wordsFor(numberOfRows).length) {
+                throw corrupt(path, "row count does not match profile words");
+            }
+            if (numberOfClasses < 0 || numberOfEdges < 0 || numberOfDungeons < numberOfClasses) {
+                throw corrupt(path, "negative or inconsistent section sizes");
+            }
+            if (Integer.bitCount(classIndexSize) != 1 || classIndexSize <= numberOfClasses) {
+                throw corrupt(path, "class index does not fit the classes");
+            }
+
+            long offsetsOffset = HEADER_SIZE + 4L * numberOfClasses;
+            long targetsOffset = offsetsOffset + 4L * (numberOfClasses + 1);
+            long profilesOffset = align(targetsOffset + 4L * numberOfEdges);
+            long classIndexOffset = profilesOffset + 16L * profileWords * numberOfClasses;
+            long dungeonsOffset = align(classIndexOffset + 4L * classIndexSize);
+            if (4L * numberOfEdges > Integer.MAX_VALUE || 4L * (numberOfClasses + 1) > Integer.MAX_VALUE) {
+                throw new IOException("Compatibility graph of the snapshot is too large to be mapped: " + path);
+            }
+            if (cellsOffset != dungeonsOffset + (long) DUNGEON_ENTRY_SIZE * numberOfDungeons
+                    || cellsOffset > channel.size()) {
+                throw corrupt(path, "sections do not fit the file");
+            }
+
+            // the graph is searched through int buffers, everything else is read through segmented regions
+            IntBuffer offsets = mapInts(channel, offsetsOffset, numberOfClasses + 1);
+            IntBuffer targets = mapInts(channel, targetsOffset, numberOfEdges);
+            MappedRegion metadata = MappedRegion.map(channel, 0, cellsOffset);
+            MappedRegion cells = MappedRegion.map(channel, cellsOffset, channel.size() - cellsOffset);
+
+            int[] counts = new int[numberOfClasses];
+            long countedDungeons = 0;
+            for (int profileClass = 0; profileClass < numberOfClasses; profileClass++) {
+                counts[profileClass] = metadata.getInt(HEADER_SIZE + 4L * profileClass);
+                if (counts[profileClass] <= 0) {
+                    throw corrupt(path, "empty profile class");
+                }
+                countedDungeons += counts[profileClass];
+            }
+            if (countedDungeons != numberOfDungeons) {
+                throw corrupt(path, "class counts do not add up to the number of dungeons");
+            }
+            validateGraph(path, offsets, targets, numberOfClasses);
+            validateDungeonTable(path, metadata, dungeonsOffset, numberOfDungeons, numberOfRows, cellsOffset,
+                    channel.size());
+            MappedDungeons dungeons = new MappedDungeons(metadata, profilesOffset, classIndexOffset, classIndexSize,
+                    dungeonsOffset, cells, cellsOffset, numberOfRows, profileWords, counts);
+            validateClassIndex(path, metadata, classIndexOffset, classIndexSize, dungeons);
+            return new PoolIndex(ProfileClasses.ofMapped(dungeons), new CompatibilityGraph(offsets, targets),
+                    numberOfRows, startNanos);
+        }
+    }
+
+    private static void validateGraph(Path path, IntBuffer offsets, IntBuffer targets, int numberOfClasses)
+            throws IOException {
+        if (offsets.get(0) != 0 || offsets.get(numberOfClasses) != targets.limit()) {
+            throw corrupt(path, "graph offsets do not cover the edges");
+        }
+        for (int node = 0; node < numberOfClasses; node++) {
+            if (offsets.get(node) > offsets.get(node + 1)) {
+                throw corrupt(path, "graph offsets are not ascending");
+            }
+        }
+        for (int edge = 0; edge < targets.limit(); edge++) {
+            if (targets.get(edge) < 0 || targets.get(edge) >= numberOfClasses) {
+                throw corrupt(path, "graph edge points outside the classes");
+            }
+        }
+    }
+
+    private static void validateClassIndex(Path path, MappedRegion metadata, long classIndexOffset,
+                                           int classIndexSize, MappedDungeons dungeons) throws IOException {
+        BitSet indexed = new BitSet(dungeons.size());
+        for (int slot = 0; slot < classIndexSize; slot++) {
+            int profileClass = metadata.getInt(classIndexOffset + 4L * slot);
+            if (profileClass < -1 || profileClass >= dungeons.size() || profileClass >= 0 && indexed.get(profileClass)) {
+                throw corrupt(path, "class index entry outside the classes");
+            }
+            if (profileClass >= 0) {
+                indexed.set(profileClass);
+            }
+        }
+        // every slot holds a distinct class and one stays empty, so each lookup below terminates
+        for (int profileClass = 0; profileClass < dungeons.size(); profileClass++) {
+            if (dungeons.classOf(dungeons.entrance(profileClass), dungeons.exit(profileClass)) != profileClass) {
+                throw corrupt(path, "class index does not find every class");
+            }
+        }
+    }
+
+    private static void validateDungeonTable(Path path, MappedRegion metadata, long dungeonsOffset,
+                                             int numberOfDungeons, int numberOfRows, long cellsOffset, long fileSize)
+            throws IOException {
+        for (int dungeon = 0; dungeon < numberOfDungeons; dungeon++) {
+            long position = dungeonsOffset + (long) DUNGEON_ENTRY_SIZE * dungeon;
+            int numberOfColumns = metadata.getInt(position + 16);
+            long cellPosition = metadata.getLong(position + 24);
+            long cellBytes = 8L * (((long) numberOfRows * numberOfColumns + 63) >>> 6);
+            if (numberOfColumns <= 0 || cellPosition < cellsOffset || cellPosition > fileSize - cellBytes
+                    || (cellPosition - cellsOffset) % MappedRegion.SEGMENT_SIZE + cellBytes > MappedRegion.SEGMENT_SIZE) {
+                throw corrupt(path, "dungeon cells outside the cells section");
+            }
+        }
+    }
+
+    /**
+     * Hash of a profile pair in the class index, part of the file format.
+     */
+    static int profileHash(EdgeProfile entrance, EdgeProfile exit) {
+        long hash = 0;
+        for (int wordIndex = 0; wordIndex < entrance.numberOfWords(); wordIndex++) {
+            hash = (hash ^ entrance.wordAt(wordIndex)) * 0x9E3779B97F4A7C15L;
+        }
+        for (int wordIndex = 0; wordIndex < exit.numberOfWords(); wordIndex++) {
+            hash = (hash ^ exit.wordAt(wordIndex)) * 0x9E3779B97F4A7C15L;
+        }
+        return (int) (hash >>> 32);
+    }
+
+    private static int[] classIndexOf(ProfileClasses profileClasses) {
+        // at most half full, so probes stay short and there always is an empty slot to stop at
+        int[] classIndex = new int[Integer.highestOneBit(Math.max(1, 2 * profileClasses.size() - 1)) << 1];
+        Arrays.fill(classIndex, -1);
+        int mask = classIndex.length - 1;
+        for (int profileClass = 0; profileClass < profileClasses.size(); profileClass++) {
+            Dungeon representative = profileClasses.member(profileClass, 0);
+            int slot = profileHash(representative.getEntrance(), representative.getExit()) & mask;
+            while (classIndex[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            classIndex[slot] = profileClass;
+        }
+        return classIndex;
+    }
+
+    private static IOException corrupt(Path path, String reason) {
+        return new IOException("Corrupt dungeon pool snapshot, " + reason + ": " + path);
+    }
+
+    private static IntBuffer mapInts(FileChannel channel, long offset, int count) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, 4L * count).order(ByteOrder.LITTLE_ENDIAN)
+                .asIntBuffer();
+    }
+
+    private static long segmentFitting(long cellsOffset, long position, long size) {
+        long offsetInSegment = (position - cellsOffset) % MappedRegion.SEGMENT_SIZE;
+        if (offsetInSegment + size > MappedRegion.SEGMENT_SIZE) {
+            return position - offsetInSegment + MappedRegion.SEGMENT_SIZE;
+        }
+        return position;
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    private static final class SnapshotWriter implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        private long flushed;
+
+        private SnapshotWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        long position() {
+            return this.flushed + this.buffer.position();
+        }
+
+        void putInt(int value) throws IOException {
+            ensureRemaining(4);
+            this.buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensureRemaining(8);
+            this.buffer.putLong(value);
+        }
+
+        void putProfile(EdgeProfile profile) throws IOException {
+            for (int wordIndex = 0; wordIndex < profile.numberOfWords(); wordIndex++) {
+                putLong(profile.wordAt(wordIndex));
+            }
+        }
+
+        void padTo(long position) throws IOException {
+            while (position() < position) {
+                ensureRemaining(1);
+                this.buffer.put((byte) 0);
+            }
+        }
+
+        private void ensureRemaining(int size) throws IOException {
+            if (this.buffer.remaining() < size) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) {
+                this.flushed += this.channel.write(this.buffer);
+            }
+            this.buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.datasacura.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Dungeons grouped by their (entrance, exit) profile pair. Instances are immutable, mutations return a copy which
+ * shares every bucket it does not touch. A class whose last member is removed is dropped and the classes after it
+ * move down by one.
+ * <p>
+ * Classes of a loaded snapshot keep their members and profiles in the mapped file: members are addressed by index
+ * and built only when drawn, a class is copied to the heap only when a mutation touches it, and lookups go through
+ * the class index of the snapshot. Only classes added after loading are kept in the heap profile map. Snapshot
+ * classes always come first and keep their order, so once some of them are dropped their snapshot numbers are
+ * found by binary search.
+ */
+final class ProfileClasses {
+    private final Map<List<EdgeProfile>, Integer> classByProfiles; // classes not found in the mapped index
+    private final Dungeon[] representatives; // null for a mapped class
+    private final Dungeon[][] buckets; // null for a class whose members are still mapped
+    private final MappedDungeons mapped;
+    private final int[] mappedClasses; // snapshot class of each leading class, null while no snapshot class is dropped
+    private final int profileWords;
+    private final int[] counts;
+    private final int numberOfDungeons;
+
+    private ProfileClasses(Map<List<EdgeProfile>, Integer> classByProfiles, Dungeon[] representatives,
+                           Dungeon[][] buckets, MappedDungeons mapped, int[] mappedClasses, int profileWords,
+                           int numberOfDungeons) {
+        this.classByProfiles = classByProfiles;
+        this.representatives = representatives;
+        this.buckets = buckets;
+        this.mapped = mapped;
+        this.mappedClasses = mappedClasses;
+        this.profileWords = profileWords;
+        this.counts = new int[buckets.length];
+        for (int profileClass = 0; profileClass < buckets.length; profileClass++) {
+            this.counts[profileClass] = buckets[profileClass] != null
+                    ? buckets[profileClass].length
+                    : mapped.count(mappedClass(profileClass));
+        }
+        this.numberOfDungeons = numberOfDungeons;
+    }
+
+    static ProfileClasses of(List<Dungeon> dungeons) {
+        Collector collector = new Collector();
+        dungeons.forEach(collector::add);
+        return collector.toProfileClasses();
+    }
+
+    /**
+     * Classes over the non-empty classes of a mapped snapshot, nothing is read until it is needed.
+     */
+    static ProfileClasses ofMapped(MappedDungeons mapped) {
+        int numberOfDungeons = 0;
+        for (int profileClass = 0; profileClass < mapped.size(); profileClass++) {
+            numberOfDungeons += mapped.count(profileClass);
+        }
+        return new ProfileClasses(Map.of(), new Dungeon[mapped.size()], new Dungeon[mapped.size()][], mapped, null,
+                mapped.profileWords(), numberOfDungeons);
+    }
+
+    ProfileClasses with(Dungeon dungeon) {
+        int profileClass = classOf(dungeon);
+        if (profileClass < 0) {
+            Map<List<EdgeProfile>, Integer> classByProfiles = new HashMap<>(this.classByProfiles);
+            classByProfiles.put(profilesOf(dungeon), this.buckets.length);
+            Dungeon[] representatives = Arrays.copyOf(this.representatives, this.buckets.length + 1);
+            representatives[this.buckets.length] = dungeon;
+            Dungeon[][] buckets = Arrays.copyOf(this.buckets, this.buckets.length + 1);
+            buckets[this.buckets.length] = new Dungeon[]{dungeon};
+            return new ProfileClasses(classByProfiles, representatives, buckets, this.mapped, this.mappedClasses,
+                    this.profileWords, this.numberOfDungeons + 1);
+        }
+        Dungeon[] bucket = bucket(profileClass);
+        Dungeon[] newBucket = Arrays.copyOf(bucket, bucket.length + 1);
+        newBucket[bucket.length] = dungeon;
+        return withBucket(profileClass, newBucket, this.numberOfDungeons + 1);
+    }
+
+    ProfileClasses without(Dungeon dungeon) {
+        int profileClass = classOf(dungeon);
+        if (this.counts[profileClass] == 1) {
+            return withoutClass(profileClass);
+        }
+        Dungeon[] bucket = bucket(profileClass);
+        Dungeon[] newBucket = new Dungeon[bucket.length - 1];
+        int index = 0;
+        for (Dungeon member : bucket) {
+            if (!member.equals(dungeon)) {
+                newBucket[index++] = member;
+            }
+        }
+        return withBucket(profileClass, newBucket, this.numberOfDungeons - 1);
+    }
+
+    boolean contains(Dungeon dungeon) {
+        int profileClass = classOf(dungeon);
+        if (profileClass < 0) {
+            return false;
+        }
+        for (int member = 0; member < this.counts[profileClass]; member++) {
+            if (isMember(profileClass, member, dungeon)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int classOf(Dungeon dungeon) {
+        if (this.mapped != null) {
+            int mappedClass = this.mapped.classOf(dungeon.getEntrance(), dungeon.getExit());
+            int profileClass = this.mappedClasses == null || mappedClass < 0
+                    ? mappedClass
+                    : Arrays.binarySearch(this.mappedClasses, mappedClass);
+            if (profileClass >= 0) {
+                return profileClass;
+            }
+        }
+        Integer profileClass = this.classByProfiles.get(profilesOf(dungeon));
+        return profileClass == null ? -1 : profileClass;
+    }
+
+    /**
+     * Whether a dungeon of the first class can be followed by a dungeon of the second one.
+     */
+    boolean isCompatible(int fromClass, int toClass) {
+        for (int wordIndex = 0; wordIndex < this.profileWords; wordIndex++) {
+            if ((exitWord(fromClass, wordIndex) & entranceWord(toClass, wordIndex)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int size() {
+        return this.buckets.length;
+    }
+
+    int numberOfDungeons() {
+        return this.numberOfDungeons;
+    }
+
+    int[] counts() {
+        return this.counts;
+    }
+
+    Dungeon member(int profileClass, int member) {
+        Dungeon[] bucket = this.buckets[profileClass];
+        return bucket != null ? bucket[member] : this.mapped.dungeon(mappedClass(profileClass), member);
+    }
+
+    List<Dungeon> representatives() {
+        if (this.mapped == null) {
+            return Arrays.asList(this.representatives);
+        }
+        Dungeon[] representatives = this.representatives.clone();
+        for (int profileClass = 0; profileClass < representatives.length; profileClass++) {
+            if (representatives[profileClass] == null) {
+                representatives[profileClass] = this.mapped.dungeon(mappedClass(profileClass), 0);
+            }
+        }
+        return Arrays.asList(representatives);
+    }
+
+    List<Dungeon> dungeons() {
+        List<Dungeon> dungeons = new ArrayList<>(this.numberOfDungeons);
+        for (int profileClass = 0; profileClass < this.buckets.length; profileClass++) {
+            dungeons.addAll(Arrays.asList(bucket(profileClass)));
+        }
+        return dungeons;
+    }
+
+    List<Dungeon> draw(int[] classSequence, SplittableRandom random) {
+        return draw(classSequence, random, null, null);
+    }
+
+    /**
+     * Same as {@link #draw(int[], SplittableRandom)}, with the first and the last dungeon fixed when not
+     * {@code null}. The anchors must belong to the first and the last class of the sequence.
+     */
+    List<Dungeon> draw(int[] classSequence, SplittableRandom random, Dungeon first, Dungeon last) {
+        // partial Fisher-Yates over member indexes of every class the sequence touches, only drawn members are built
+        Map<Integer, MemberShuffle> shuffles = new HashMap<>();
+        reserve(first, shuffles);
+        reserve(last, shuffles);
+        List<Dungeon> sequence = new ArrayList<>(classSequence.length);
+        for (int position = 0; position < classSequence.length; position++) {
+            if (position == 0 && first != null) {
+                sequence.add(first);
+                continue;
+            }
+            if (position == classSequence.length - 1 && last != null) {
+                sequence.add(last);
+                continue;
+            }
+            int profileClass = classSequence[position];
+            MemberShuffle shuffle = shuffles.computeIfAbsent(profileClass, this::shuffleOf);
+            sequence.add(member(profileClass, shuffle.draw(random)));
+        }
+        return sequence;
+    }
+
+    private void reserve(Dungeon anchor, Map<Integer, MemberShuffle> shuffles) {
+        if (anchor == null) {
+            return;
+        }
+        int profileClass = classOf(anchor);
+        MemberShuffle shuffle = shuffles.computeIfAbsent(profileClass, this::shuffleOf);
+        for (int slot = shuffle.drawn; slot < this.counts[profileClass]; slot++) {
+            if (isMember(profileClass, shuffle.memberAt(slot), anchor)) {
+                shuffle.take(slot);
+                return;
+            }
+        }
+    }
+
+    private MemberShuffle shuffleOf(int profileClass) {
+        return new MemberShuffle(this.counts[profileClass]);
+    }
+
+    private boolean isMember(int profileClass, int member, Dungeon dungeon) {
+        Dungeon[] bucket = this.buckets[profileClass];
+        return bucket != null
+                ? bucket[member].equals(dungeon)
+                : this.mapped.hasId(mappedClass(profileClass), member, dungeon.getId());
+    }
+
+    private Dungeon[] bucket(int profileClass) {
+        if (this.buckets[profileClass] != null) {
+            return this.buckets[profileClass];
+        }
+        Dungeon[] bucket = new Dungeon[this.counts[profileClass]];
+        for (int member = 0; member < bucket.length; member++) {
+            bucket[member] = this.mapped.dungeon(mappedClass(profileClass), member);
+        }
+        return bucket;
+    }
+
+    private long entranceWord(int profileClass, int wordIndex) {
+        Dungeon representative = this.representatives[profileClass];
+        return representative != null
+                ? representative.getEntrance().wordAt(wordIndex)
+                : this.mapped.entranceWord(mappedClass(profileClass), wordIndex);
+    }
+
+    private long exitWord(int profileClass, int wordIndex) {
+        Dungeon representative = this.representatives[profileClass];
+        return representative != null
+                ? representative.getExit().wordAt(wordIndex)
+                : this.mapped.exitWord(mappedClass(profileClass), wordIndex);
+    }
+
+    private ProfileClasses withBucket(int profileClass, Dungeon[] bucket, int numberOfDungeons) {
+        Dungeon[][] buckets = this.buckets.clone();
+        buckets[profileClass] = bucket;
+        return new ProfileClasses(this.classByProfiles, this.representatives, buckets, this.mapped, this.mappedClasses,
+                this.profileWords, numberOfDungeons);
+    }
+
+    private ProfileClasses withoutClass(int removedClass) {
+        Map<List<EdgeProfile>, Integer> classByProfiles = new HashMap<>();
+        this.classByProfiles.forEach((profiles, profileClass) -> {
+            if (profileClass != removedClass) {
+                classByProfiles.put(profiles, profileClass < removedClass ? profileClass : profileClass - 1);
+            }
+        });
+        int[] mappedClasses = this.mappedClasses;
+        int numberOfMappedClasses = numberOfMappedClasses();
+        if (removedClass < numberOfMappedClasses) {
+            mappedClasses = new int[numberOfMappedClasses - 1];
+            for (int profileClass = 0; profileClass < mappedClasses.length; profileClass++) {
+                mappedClasses[profileClass] = mappedClass(profileClass < removedClass ? profileClass : profileClass + 1);
+            }
+        }
+        return new ProfileClasses(classByProfiles, removed(this.representatives, removedClass),
+                removed(this.buckets, removedClass), this.mapped, mappedClasses, this.profileWords,
+                this.numberOfDungeons - 1);
+    }
+
+    private int mappedClass(int profileClass) {
+        return this.mappedClasses == null ? profileClass : this.mappedClasses[profileClass];
+    }
+
+    private int numberOfMappedClasses() {
+        if (this.mapped == null) {
+            return 0;
+        }
+        return this.mappedClasses == null ? this.mapped.size() : this.mappedClasses.length;
+    }
+
+    private static <T> T[] removed(T[] array, int index) {
+        T[] copy = Arrays.copyOf(array, array.length - 1);
+        System.arraycopy(array, index + 1, copy, index, copy.length - index);
+        return copy;
+    }
+
+    private static List<EdgeProfile> profilesOf(Dungeon dungeon) {
+        return List.of(dungeon.getEntrance(), dungeon.getExit());
+    }
+
+    /**
+     * Partial Fisher-Yates over the member indexes of one class. Slots hold their own index until a draw swaps them,
+     * so only the swapped slots are stored and a draw never touches the rest of the class.
+     */
+    private static final class MemberShuffle {
+        private final Map<Integer, Integer> displaced = new HashMap<>();
+        private final int count;
+        private int drawn;
+
+        private MemberShuffle(int count) {
+            this.count = count;
+        }
+
+        int memberAt(int slot) {
+            Integer member = this.displaced.get(slot);
+            return member == null ? slot : member;
+        }
+
+        int draw(SplittableRandom random) {
+            return take(this.drawn + random.nextInt(this.count - this.drawn));
+        }
+
+        int take(int slot) {
+            int member = memberAt(slot);
+            if (slot != this.drawn) {
+                this.displaced.put(slot, memberAt(this.drawn));
+            }
+            // slots before drawn are never read again
+            this.displaced.remove(this.drawn++);
+            return member;
+        }
+    }
+
+    /**
+     * Groups dungeons into classes as they arrive, so they are never held as a flat list next to the classes.
+     */
+    static final class Collector {
+        // compatibility only depends on the entrance and exit columns, so dungeons sharing both are interchangeable
+        private final Map<List<EdgeProfile>, Integer> classByProfiles = new HashMap<>();
+        private final List<List<Dungeon>> buckets = new ArrayList<>();
+        private final Set<UUID> ids = new HashSet<>();
+
+        /**
+         * Adds the dungeon to its class, {@code false} when a dungeon with the same id was already added.
+         */
+        boolean add(Dungeon dungeon) {
+            if (!this.ids.add(dungeon.getId())) {
+                return false;
+            }
+            List<EdgeProfile> profiles = profilesOf(dungeon);
+            Integer profileClass = this.classByProfiles.get(profiles);
+            if (profileClass == null) {
+                profileClass = this.buckets.size();
+                this.classByProfiles.put(profiles, profileClass);
+                this.buckets.add(new ArrayList<>());
+            }
+            this.buckets.get(profileClass).add(dungeon);
+            return true;
+        }
+
+        int numberOfDungeons() {
+            return this.ids.size();
+        }
+
+        ProfileClasses toProfileClasses() {
+            Dungeon[][] bucketArrays = new Dungeon[this.buckets.size()][];
+            Dungeon[] representatives = new Dungeon[this.buckets.size()];
+            for (int profileClass = 0; profileClass < bucketArrays.length; profileClass++) {
+                bucketArrays[profileClass] = this.buckets.get(profileClass).toArray(new Dungeon[0]);
+                representatives[profileClass] = bucketArrays[profileClass][0];
+            }
+            return new ProfileClasses(new HashMap<>(this.classByProfiles), representatives, bucketArrays, null, null,
+                    representatives[0].getEntrance().numberOfWords(), numberOfDungeons());
+        }
+    }
+}
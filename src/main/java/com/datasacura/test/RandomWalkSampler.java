@@ -0,0 +1,202 @@
+package com.datasacura.test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Randomized self-avoiding walks over the class graph. A walk grows at its end and, once stuck there, at its start
+ * over the reversed graph. When both ends are stuck, a few classes are cut off one end and the walk grows again;
+ * after too many such repairs the walk restarts from a new random class. On dense pools nearly every step succeeds,
+ * so a sequence costs close to its length in steps.
+ * <p>
+ * Rotations and 2-opt moves would reverse a part of the path, which compatibility, being directed, does not allow;
+ * truncation is the repair which keeps every edge valid. The sampler can not prove anything, it just gives up.
+ */
+final class RandomWalkSampler {
+    static final int MAX_RESTARTS = 32;
+    private static final int MAX_REPAIR_DEPTH = 8;
+    private static final int RANDOM_PROBES = 4;
+    private static final int STOP_CHECK_INTERVAL = 1024;
+
+    private final CompatibilityGraph graph;
+    private final CompatibilityGraph reverseGraph;
+    private final int[] capacities;
+    private final int length;
+    private final SplittableRandom random;
+    private final long maxExpansions;
+    private final boolean hasDeadline;
+    private final long deadline;
+    private final int[] path; // the walk sits in the middle and grows to both sides
+    private final int[] used;
+    private int[] bestPath = new int[0];
+    private int head;
+    private int tail;
+    private long steps;
+    private long truncated;
+    private int restarts;
+    private boolean stopped;
+
+    RandomWalkSampler(PoolIndex index, int length, SplittableRandom random, SearchBudget budget) {
+        this.graph = index.graph();
+        this.reverseGraph = index.reverseGraph();
+        this.capacities = index.profileClasses().counts();
+        this.length = length;
+        this.random = random;
+        this.maxExpansions = budget.getMaxExpansions();
+        this.hasDeadline = budget.hasTimeout();
+        this.deadline = System.nanoTime() + budget.getTimeoutNanos();
+        this.path = new int[2 * length];
+        this.used = new int[this.graph.size()];
+    }
+
+    int[] find() {
+        int maxRepairs = 2 * this.length;
+        for (; this.restarts < MAX_RESTARTS && !this.stopped; this.restarts++) {
+            if (!startWalk()) {
+                return null;
+            }
+            int repairs = 0;
+            while (size() < this.length && repairs <= maxRepairs) {
+                if (shouldStop()) {
+                    break;
+                }
+                int next = nextFree(this.graph, this.path[this.tail - 1]);
+                if (next >= 0) {
+                    if (this.tail == this.path.length) {
+                        recenter();
+                    }
+                    take(next);
+                    this.path[this.tail++] = next;
+                    continue;
+                }
+                int previous = nextFree(this.reverseGraph, this.path[this.head]);
+                if (previous >= 0) {
+                    if (this.head == 0) {
+                        recenter();
+                    }
+                    take(previous);
+                    this.path[--this.head] = previous;
+                    continue;
+                }
+                rememberIfBest();
+                repairs++;
+                truncate();
+            }
+            if (size() == this.length) {
+                return Arrays.copyOfRange(this.path, this.head, this.tail);
+            }
+            rememberIfBest();
+        }
+        return null;
+    }
+
+    int[] bestPath() {
+        return this.bestPath.clone();
+    }
+
+    boolean isStopped() {
+        return this.stopped;
+    }
+
+    long steps() {
+        return this.steps;
+    }
+
+    long truncated() {
+        return this.truncated;
+    }
+
+    int restarts() {
+        return this.restarts;
+    }
+
+    private boolean startWalk() {
+        Arrays.fill(this.used, 0);
+        this.head = this.length;
+        this.tail = this.length;
+        int size = this.graph.size();
+        int offset = this.random.nextInt(size);
+        for (int i = 0; i < size; i++) {
+            int start = (offset + i) % size;
+            if (this.capacities[start] > 0) {
+                take(start);
+                this.path[this.tail++] = start;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A few random probes first, which is all a dense graph needs, then a scan from a random offset.
+     */
+    private int nextFree(CompatibilityGraph graph, int node) {
+        int firstEdge = graph.firstEdge(node);
+        int degree = graph.degree(node);
+        if (degree == 0) {
+            return -1;
+        }
+        for (int probe = 0; probe < RANDOM_PROBES; probe++) {
+            int target = graph.target(firstEdge + this.random.nextInt(degree));
+            if (this.used[target] < this.capacities[target]) {
+                return target;
+            }
+        }
+        int offset = this.random.nextInt(degree);
+        for (int i = 0; i < degree; i++) {
+            int target = graph.target(firstEdge + (offset + i) % degree);
+            if (this.used[target] < this.capacities[target]) {
+                return target;
+            }
+        }
+        return -1;
+    }
+
+    private void truncate() {
+        int depth = 1 + this.random.nextInt(Math.min(size(), MAX_REPAIR_DEPTH));
+        boolean fromEnd = this.random.nextBoolean();
+        for (int i = 0; i < depth && size() > 1; i++) {
+            release(fromEnd ? this.path[--this.tail] : this.path[this.head++]);
+            this.truncated++;
+        }
+    }
+
+    /**
+     * Cuts at one end let the walk drift towards the other, moving it back to the middle keeps room at both ends.
+     */
+    private void recenter() {
+        int size = size();
+        int newHead = (this.path.length - size) / 2;
+        System.arraycopy(this.path, this.head, this.path, newHead, size);
+        this.head = newHead;
+        this.tail = newHead + size;
+    }
+
+    private boolean shouldStop() {
+        long steps = ++this.steps;
+        if (steps > this.maxExpansions) {
+            this.stopped = true;
+        } else if (this.hasDeadline && steps % STOP_CHECK_INTERVAL == 0) {
+            this.stopped = System.nanoTime() - this.deadline >= 0;
+        }
+        return this.stopped;
+    }
+
+    private void rememberIfBest() {
+        if (size() > this.bestPath.length) {
+            this.bestPath = Arrays.copyOfRange(this.path, this.head, this.tail);
+        }
+    }
+
+    private int size() {
+        return this.tail - this.head;
+    }
+
+    private void take(int node) {
+        this.used[node]++;
+    }
+
+    private void release(int node) {
+        this.used[node]--;
+    }
+}
@@ -0,0 +1,76 @@
+package com.datasacura.test;
+
+import java.time.Duration;
+
+import static java.util.Objects.requireNonNull;
+
+public final class SearchBudget {
+    private static final long UNLIMITED_VALUE = Long.MAX_VALUE;
+    private static final SearchBudget UNLIMITED = new SearchBudget(UNLIMITED_VALUE, UNLIMITED_VALUE);
+
+    private final long timeoutNanos;
+    private final long maxExpansions;
+
+    private SearchBudget(long timeoutNanos, long maxExpansions) {
+        this.timeoutNanos = timeoutNanos;
+        this.maxExpansions = maxExpansions;
+    }
+
+    public static SearchBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    public static SearchBudget ofTimeout(Duration timeout) {
+        return UNLIMITED.withTimeout(timeout);
+    }
+
+    public static SearchBudget ofExpansions(long maxExpansions) {
+        return UNLIMITED.withMaxExpansions(maxExpansions);
+    }
+
+    public SearchBudget withTimeout(Duration timeout) {
+        requireNonNull(timeout, "Timeout must not be null.");
+        if (timeout.isNegative()) {
+            throw new IllegalArgumentException("Timeout must not be negative.");
+        }
+        return new SearchBudget(saturatedNanos(timeout), this.maxExpansions);
+    }
+
+    public SearchBudget withMaxExpansions(long maxExpansions) {
+        if (maxExpansions < 0) {
+            throw new IllegalArgumentException("Maximum number of expansions must not be negative.");
+        }
+        return new SearchBudget(this.timeoutNanos, maxExpansions);
+    }
+
+    boolean hasTimeout() {
+        return this.timeoutNanos != UNLIMITED_VALUE;
+    }
+
+    long getTimeoutNanos() {
+        return this.timeoutNanos;
+    }
+
+    long getMaxExpansions() {
+        return this.maxExpansions;
+    }
+
+    /**
+     * What is left of this budget after the given time and expansions were spent.
+     */
+    SearchBudget remainingAfter(long elapsedNanos, long expansions) {
+        long timeoutNanos = hasTimeout() ? Math.max(0, this.timeoutNanos - elapsedNanos) : UNLIMITED_VALUE;
+        long maxExpansions = this.maxExpansions == UNLIMITED_VALUE
+                ? UNLIMITED_VALUE
+                : Math.max(0, this.maxExpansions - expansions);
+        return new SearchBudget(timeoutNanos, maxExpansions);
+    }
+
+    private static long saturatedNanos(Duration timeout) {
+        try {
+            return timeout.toNanos();
+        } catch (ArithmeticException e) {
+            return UNLIMITED_VALUE;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.datasacura.test;
+
+/**
+ * Optional instrumentation of a {@link DungeonPool}. Callbacks run on the calling thread after the work is done,
+ * so they should be quick. Without a listener the pool does not collect anything.
+ */
+public interface SearchListener {
+
+    /**
+     * Called once per sequence request, batches and parallel searches report their totals.
+     */
+    default void onSearchCompleted(SearchStatistics statistics) {
+    }
+
+    /**
+     * Called whenever the pool builds a new compatibility graph snapshot: at construction, and after every
+     * {@link DungeonPool#add} or {@link DungeonPool#remove}.
+     */
+    default void onGraphBuilt(GraphStatistics statistics) {
+    }
+}
@@ -0,0 +1,86 @@
+package com.datasacura.test;
+
+import jdk.jfr.EventType;
+
+import java.util.List;
+
+/**
+ * Collects statistics of one sequence request for the listener and the flight recorder. Only exists while one of
+ * them is listening, so an uninstrumented search pays a null check.
+ */
+final class SearchProbe {
+    // looked up once, so checking whether a recording wants the events allocates nothing
+    private static final EventType SEARCH_EVENT_TYPE = EventType.getEventType(SequenceSearchEvent.class);
+    private static final EventType GRAPH_BUILD_EVENT_TYPE = EventType.getEventType(GraphBuildEvent.class);
+
+    private final SearchListener listener;
+    private final SequenceSearchEvent event;
+    private final long startNanos;
+
+    private SearchProbe(SearchListener listener, SequenceSearchEvent event) {
+        this.listener = listener;
+        this.event = event;
+        this.startNanos = System.nanoTime();
+    }
+
+    static SearchProbe start(SearchListener listener) {
+        if (listener == null && !SEARCH_EVENT_TYPE.isEnabled()) {
+            return null;
+        }
+        SequenceSearchEvent event = new SequenceSearchEvent();
+        event.begin();
+        return new SearchProbe(listener, event);
+    }
+
+    static void graphBuilt(SearchListener listener, PoolIndex index) {
+        if (listener == null && !GRAPH_BUILD_EVENT_TYPE.isEnabled()) {
+            return;
+        }
+        GraphBuildEvent event = new GraphBuildEvent();
+        GraphStatistics statistics = GraphStatistics.of(index);
+        if (listener != null) {
+            listener.onGraphBuilt(statistics);
+        }
+        if (event.shouldCommit()) {
+            event.numberOfDungeons = statistics.getNumberOfDungeons();
+            event.numberOfNodes = statistics.getNumberOfNodes();
+            event.numberOfEdges = statistics.getNumberOfEdges();
+            event.maxDegree = statistics.getMaxDegree();
+            event.buildTime = statistics.getBuildTimeNanos();
+            event.commit();
+        }
+    }
+
+    void complete(int length, SequenceResult.Status status, List<SequenceSearch> searches) {
+        long nodesExpanded = 0;
+        long backtracks = 0;
+        int maxDepth = 0;
+        int startsTried = 0;
+        for (SequenceSearch search : searches) {
+            nodesExpanded += search.expansions();
+            backtracks += search.backtracks();
+            maxDepth = Math.max(maxDepth, search.maxDepth());
+            startsTried += search.startsTried();
+        }
+        complete(length, status, nodesExpanded, backtracks, maxDepth, startsTried);
+    }
+
+    void complete(int length, SequenceResult.Status status, long nodesExpanded, long backtracks, int maxDepth,
+                  int startsTried) {
+        long wallTimeNanos = System.nanoTime() - this.startNanos;
+        if (this.listener != null) {
+            this.listener.onSearchCompleted(new SearchStatistics(length, status, nodesExpanded, backtracks, maxDepth,
+                    startsTried, wallTimeNanos));
+        }
+        this.event.end();
+        if (this.event.shouldCommit()) {
+            this.event.length = length;
+            this.event.status = status.name();
+            this.event.nodesExpanded = nodesExpanded;
+            this.event.backtracks = backtracks;
+            this.event.maxDepth = maxDepth;
+            this.event.startsTried = startsTried;
+            this.event.commit();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.datasacura.test;
+
+public final class SearchStatistics {
+    private final int length;
+    private final SequenceResult.Status status;
+    private final long nodesExpanded;
+    private final long backtracks;
+    private final int maxDepth;
+    private final int startsTried;
+    private final long wallTimeNanos;
+
+    SearchStatistics(int length, SequenceResult.Status status, long nodesExpanded, long backtracks, int maxDepth,
+                     int startsTried, long wallTimeNanos) {
+        this.length = length;
+        this.status = status;
+        this.nodesExpanded = nodesExpanded;
+        this.backtracks = backtracks;
+        this.maxDepth = maxDepth;
+        this.startsTried = startsTried;
+        this.wallTimeNanos = wallTimeNanos;
+    }
+
+    public int getLength() {
+        return this.length;
+    }
+
+    public SequenceResult.Status getStatus() {
+        return this.status;
+    }
+
+    public long getNodesExpanded() {
+        return this.nodesExpanded;
+    }
+
+    public long getBacktracks() {
+        return this.backtracks;
+    }
+
+    /**
+     * Length of the longest partial sequence the search reached.
+     */
+    public int getMaxDepth() {
+        return this.maxDepth;
+    }
+
+    public int getStartsTried() {
+        return this.startsTried;
+    }
+
+    public long getWallTimeNanos() {
+        return this.wallTimeNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchStatistics{length=" + this.length + ", status=" + this.status
+                + ", nodesExpanded=" + this.nodesExpanded + ", backtracks=" + this.backtracks
+                + ", maxDepth=" + this.maxDepth + ", startsTried=" + this.startsTried
+                + ", wallTimeNanos=" + this.wallTimeNanos + '}';
+    }
+}
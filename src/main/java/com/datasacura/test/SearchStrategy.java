@@ -0,0 +1,13 @@
+package com.datasacura.test;
+
+public enum SearchStrategy {
+    /**
+     * Depth-first search over every possible sequence, proves impossibility when no sequence exists.
+     */
+    EXHAUSTIVE,
+    /**
+     * Randomized walks with restarts, near-linear in the sequence length on dense pools. Falls back to the
+     * exhaustive search when the walks give up.
+     */
+    RANDOM_WALK
+}
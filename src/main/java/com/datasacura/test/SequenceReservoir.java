@@ -0,0 +1,168 @@
+package com.datasacura.test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Keeps up to {@code capacity} ready-made sequences per requested length, refilled in the background, so a request
+ * is usually a queue poll. A length gets its reservoir on the first request.
+ * <p>
+ * Every update of the pool empties all the reservoirs and schedules their refill, so a removed dungeon is never
+ * handed out. A refill which raced with an update drops what it built, and every sequence still remembers the pool
+ * snapshot it was built from, so one which slipped through is dropped by {@code take} instead of served.
+ * <p>
+ * Every refill batch gets a bounded search budget. A length the refill cannot fill within it, hard or impossible,
+ * is left to the synchronous path of {@code take} until the next update of the pool, so it never holds the refill
+ * thread away from the other lengths.
+ */
+public final class SequenceReservoir implements AutoCloseable {
+    private static final int REFILL_BATCH_SIZE = 16;
+    private static final SearchBudget REFILL_BUDGET = SearchBudget.ofTimeout(Duration.ofSeconds(1));
+
+    private final DungeonPool pool;
+    private final int capacity;
+    private final Executor executor;
+    private final ExecutorService ownExecutor;
+    private final Map<Integer, Reservoir> reservoirs = new ConcurrentHashMap<>();
+    private final Runnable invalidation = this::invalidate;
+    private volatile boolean closed;
+
+    public SequenceReservoir(DungeonPool pool, int capacity) {
+        this(pool, capacity, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sequence-reservoir-refill");
+            thread.setDaemon(true);
+            return thread;
+        }), true);
+    }
+
+    /**
+     * Refills run on the given executor, which stays open when the reservoir is closed.
+     */
+    public SequenceReservoir(DungeonPool pool, int capacity, Executor executor) {
+        this(pool, capacity, executor, false);
+    }
+
+    private SequenceReservoir(DungeonPool pool, int capacity, Executor executor, boolean ownsExecutor) {
+        requireNonNull(pool, "Dungeon pool must not be null.");
+        requireNonNull(executor, "Executor must not be null.");
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Reservoir capacity must be positive.");
+        }
+        this.pool = pool;
+        this.capacity = capacity;
+        this.executor = executor;
+        this.ownExecutor = ownsExecutor ? (ExecutorService) executor : null;
+        pool.addUpdateListener(this.invalidation);
+    }
+
+    /**
+     * Ready-made sequence of the given length, or a synchronously built one when none is ready. Fails the same
+     * way as {@link DungeonPool#createXSequence(int)}.
+     */
+    public List<Dungeon> take(int length) {
+        if (this.closed) {
+            throw new IllegalStateException("Sequence reservoir is closed.");
+        }
+        PoolIndex index = this.pool.index();
+        this.pool.validateSequenceLength(index, length);
+        Reservoir reservoir = this.reservoirs.computeIfAbsent(length, key -> new Reservoir(this.capacity));
+        Entry entry = reservoir.sequences.poll();
+        if (entry != null && entry.index != index) {
+            reservoir.sequences.clear(); // the pool changed, every queued sequence is from an older snapshot
+            entry = null;
+        }
+        scheduleRefill(length, reservoir);
+        if (entry != null) {
+            return entry.sequence;
+        }
+        return this.pool.createXSequences(index, 1, length).get(0);
+    }
+
+    /**
+     * Number of ready sequences of the given length.
+     */
+    public int available(int length) {
+        Reservoir reservoir = this.reservoirs.get(length);
+        return reservoir == null ? 0 : reservoir.sequences.size();
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        this.pool.removeUpdateListener(this.invalidation);
+        this.reservoirs.clear();
+        if (this.ownExecutor != null) {
+            this.ownExecutor.shutdownNow();
+        }
+    }
+
+    private void invalidate() {
+        this.reservoirs.forEach((length, reservoir) -> {
+            reservoir.sequences.clear();
+            scheduleRefill(length, reservoir);
+        });
+    }
+
+    private void scheduleRefill(int length, Reservoir reservoir) {
+        if (!this.closed && reservoir.stalledIndex != this.pool.index()
+                && reservoir.refilling.compareAndSet(false, true)) {
+            try {
+                this.executor.execute(() -> refill(length, reservoir));
+            } catch (RejectedExecutionException e) {
+                reservoir.refilling.set(false); // takes keep building sequences themselves and retry the refill
+            }
+        }
+    }
+
+    private void refill(int length, Reservoir reservoir) {
+        try {
+            while (!this.closed && reservoir.sequences.remainingCapacity() > 0) {
+                PoolIndex index = this.pool.index();
+                int count = Math.min(REFILL_BATCH_SIZE, reservoir.sequences.remainingCapacity());
+                List<List<Dungeon>> sequences = this.pool.createXSequences(index, count, length, REFILL_BUDGET);
+                for (List<Dungeon> sequence : sequences) {
+                    if (this.pool.index() != index || !reservoir.sequences.offer(new Entry(index, sequence))) {
+                        break; // an update replaced the snapshot, the next round builds from the new one
+                    }
+                }
+                if (sequences.size() < count) {
+                    reservoir.stalledIndex = index; // takes build and report this length until the pool changes
+                    return;
+                }
+            }
+        } finally {
+            reservoir.refilling.set(false);
+        }
+    }
+
+    private static final class Reservoir {
+        private final BlockingQueue<Entry> sequences;
+        private final AtomicBoolean refilling = new AtomicBoolean();
+        private volatile PoolIndex stalledIndex; // snapshot the refill gave up on
+
+        private Reservoir(int capacity) {
+            this.sequences = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+
+    private static final class Entry {
+        private final PoolIndex index;
+        private final List<Dungeon> sequence;
+
+        private Entry(PoolIndex index, List<Dungeon> sequence) {
+            this.index = index;
+            this.sequence = sequence;
+        }
+    }
+}
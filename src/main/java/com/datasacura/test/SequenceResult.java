@@ -0,0 +1,36 @@
+package com.datasacura.test;
+
+import java.util.List;
+
+import static java.util.Collections.unmodifiableList;
+
+public final class SequenceResult {
+    private final Status status;
+    private final List<Dungeon> sequence;
+
+    SequenceResult(Status status, List<Dungeon> sequence) {
+        this.status = status;
+        this.sequence = unmodifiableList(sequence);
+    }
+
+    public Status getStatus() {
+        return this.status;
+    }
+
+    public boolean isFound() {
+        return this.status == Status.FOUND;
+    }
+
+    /**
+     * Found sequence, or the longest partial sequence reached before the search stopped.
+     */
+    public List<Dungeon> getSequence() {
+        return this.sequence;
+    }
+
+    public enum Status {
+        FOUND,
+        IMPOSSIBLE,
+        BUDGET_EXHAUSTED
+    }
+}
@@ -0,0 +1,315 @@
+package com.datasacura.test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+final class SequenceSearch {
+    private static final int STOP_CHECK_INTERVAL = 1024;
+    private static final int WARNSDORFF_SAMPLE_SIZE = 8;
+
+    private final CompatibilityGraph graph;
+    private final StronglyConnectedComponents components;
+    private final int[] capacities;
+    private final int length;
+    private final SplittableRandom random;
+    private final long maxExpansions;
+    private final boolean hasDeadline;
+    private final long deadline;
+    private final AtomicBoolean cancelled;
+    private final Goal goal;
+    private final int[] path;
+    private final int[] cursors;
+    private final int[] frameEnds;
+    private final int[] used;
+    private final int[] bestPath;
+    private final int[] reachStamps;
+    private final int[] reachQueue;
+    private final int[] startingOrder;
+    private int[] candidates;
+    private int reachStamp;
+    private int bestLength;
+    private long expansions;
+    private long backtracks;
+    private int startsTried;
+    private boolean stopped;
+
+    SequenceSearch(PoolIndex index, int length, SplittableRandom random, SearchBudget budget,
+                   AtomicBoolean cancelled) {
+        this(index.graph(), index.components(), index.profileClasses().counts(), length, random, budget, cancelled,
+                null);
+    }
+
+    /**
+     * Search over any graph with matching components, e.g. the reversed one. A goal, when given, has the final say
+     * on every full path; a rejected path is backtracked like a dead end.
+     */
+    SequenceSearch(CompatibilityGraph graph, StronglyConnectedComponents components, int[] capacities, int length,
+                   SplittableRandom random, SearchBudget budget, AtomicBoolean cancelled, Goal goal) {
+        this.graph = graph;
+        this.components = components;
+        this.capacities = capacities;
+        this.length = length;
+        this.random = random;
+        this.maxExpansions = budget.getMaxExpansions();
+        this.hasDeadline = budget.hasTimeout();
+        this.deadline = System.nanoTime() + budget.getTimeoutNanos();
+        this.cancelled = cancelled;
+        this.goal = goal;
+        this.path = new int[length];
+        this.cursors = new int[length];
+        this.frameEnds = new int[length];
+        this.used = new int[graph.size()];
+        this.bestPath = new int[length];
+        this.reachStamps = new int[graph.size()];
+        this.reachQueue = new int[graph.size()];
+        this.candidates = new int[Math.max(16, Math.min(graph.numberOfEdges(), 4 * length))];
+        this.startingOrder = new int[graph.size()];
+        Arrays.setAll(this.startingOrder, node -> node);
+    }
+
+    /**
+     * Can be called repeatedly, every call leaves the scratch state clean for the next one.
+     */
+    int[] find() {
+        int[] startingOrder = this.startingOrder; // any permutation is a valid input for the lazy Fisher-Yates
+        for (int i = 0; i < startingOrder.length && !this.stopped; i++) {
+            int startingNode = pickRandomly(startingOrder, i, startingOrder.length);
+            if (findFrom(startingNode)) {
+                int[] path = path();
+                unwind(this.length - 1);
+                return path;
+            }
+        }
+        return null;
+    }
+
+    int[] path() {
+        return Arrays.copyOf(this.path, this.length);
+    }
+
+    int[] bestPath() {
+        return Arrays.copyOf(this.bestPath, this.bestLength);
+    }
+
+    boolean isStopped() {
+        return this.stopped;
+    }
+
+    long expansions() {
+        return this.expansions;
+    }
+
+    long backtracks() {
+        return this.backtracks;
+    }
+
+    int startsTried() {
+        return this.startsTried;
+    }
+
+    int maxDepth() {
+        return this.bestLength;
+    }
+
+    boolean findFrom(int startingNode) {
+        int[] path = this.path;
+        int[] cursors = this.cursors;
+        int[] frameEnds = this.frameEnds;
+        int lastDepth = this.length - 1;
+
+        if (this.capacities[startingNode] == 0) {
+            return false;
+        }
+        this.startsTried++;
+        int depth = 0;
+        path[0] = startingNode;
+        rememberIfBest(0);
+        if (this.components.chainWeightFrom(startingNode) < this.length) {
+            return false;
+        }
+        take(startingNode);
+        pushCandidates(startingNode, 0, 0);
+        while (depth >= 0) {
+            if (depth == lastDepth) {
+                if (this.goal == null || this.goal.reached(path, this.used)) {
+                    return true;
+                }
+                release(path[depth]);
+                depth--;
+                this.backtracks++;
+                continue;
+            }
+            int cursor = cursors[depth];
+            int frameEnd = frameEnds[depth];
+            if (cursor < frameEnd) {
+                if (shouldStop()) {
+                    unwind(depth);
+                    return false;
+                }
+                int next = pickLeastConstrained(cursor, frameEnd);
+                cursors[depth] = cursor + 1;
+                if (!canComplete(next, lastDepth - depth - 1)) {
+                    continue;
+                }
+                depth++;
+                path[depth] = next;
+                take(next);
+                pushCandidates(next, depth, frameEnd);
+                rememberIfBest(depth);
+            } else {
+                release(path[depth]); // backtracking, usage counts stay exactly the current path
+                depth--;
+                this.backtracks++;
+            }
+        }
+        return false;
+    }
+
+    private int pickLeastConstrained(int from, int to) {
+        // Warnsdorff rule on a random sample of the frame: the candidate with the fewest onward options goes first,
+        // ties keep the random order. Lazy Fisher-Yates means only siblings which are actually tried get shuffled
+        int[] candidates = this.candidates;
+        int sampleEnd = Math.min(to, from + WARNSDORFF_SAMPLE_SIZE);
+        int best = from;
+        int bestDegree = Integer.MAX_VALUE;
+        for (int i = from; i < sampleEnd; i++) {
+            int candidate = pickRandomly(candidates, i, to);
+            int degree = availableDegree(candidate, bestDegree);
+            if (degree < bestDegree) {
+                best = i;
+                bestDegree = degree;
+            }
+        }
+        int next = candidates[best];
+        candidates[best] = candidates[from];
+        candidates[from] = next;
+        return next;
+    }
+
+    private int availableDegree(int node, int limit) {
+        CompatibilityGraph graph = this.graph;
+        int degree = 0;
+        for (int edge = graph.firstEdge(node), endEdge = graph.endEdge(node); edge < endEdge && degree < limit; edge++) {
+            if (!isUsedUp(graph.target(edge))) {
+                degree++;
+            }
+        }
+        return degree;
+    }
+
+    private boolean canComplete(int next, int remaining) {
+        if (remaining == 0) {
+            return true;
+        }
+        if (this.components.chainWeightFrom(next) <= remaining) {
+            return false;
+        }
+        take(next);
+        boolean reachable = countReachableLeft(next, remaining) >= remaining;
+        release(next);
+        return reachable;
+    }
+
+    private int countReachableLeft(int source, int enough) {
+        // breadth-first flood over classes with dungeons left, stopped as soon as enough dungeons are found
+        CompatibilityGraph graph = this.graph;
+        int[] reachStamps = this.reachStamps;
+        int[] queue = this.reachQueue;
+        int stamp = ++this.reachStamp;
+        if (stamp == 0) {
+            Arrays.fill(reachStamps, 0);
+            stamp = this.reachStamp = 1;
+        }
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = source;
+        int count = 0;
+        while (head < tail) {
+            int node = queue[head++];
+            for (int edge = graph.firstEdge(node), endEdge = graph.endEdge(node); edge < endEdge; edge++) {
+                int target = graph.target(edge);
+                if (reachStamps[target] != stamp && !isUsedUp(target)) {
+                    reachStamps[target] = stamp;
+                    count += this.capacities[target] - this.used[target];
+                    if (count >= enough) {
+                        return count;
+                    }
+                    queue[tail++] = target;
+                }
+            }
+        }
+        return count;
+    }
+
+    private boolean shouldStop() {
+        long expansions = ++this.expansions;
+        if (expansions > this.maxExpansions) {
+            this.stopped = true;
+        } else if (expansions % STOP_CHECK_INTERVAL == 0) {
+            this.stopped = this.cancelled != null && this.cancelled.get()
+                    || this.hasDeadline && System.nanoTime() - this.deadline >= 0;
+        }
+        return this.stopped;
+    }
+
+    private void rememberIfBest(int depth) {
+        if (depth >= this.bestLength) {
+            System.arraycopy(this.path, 0, this.bestPath, 0, depth + 1);
+            this.bestLength = depth + 1;
+        }
+    }
+
+    private void unwind(int depth) {
+        for (; depth >= 0; depth--) {
+            release(this.path[depth]);
+        }
+    }
+
+    private void pushCandidates(int node, int depth, int frameStart) {
+        CompatibilityGraph graph = this.graph;
+        int endEdge = graph.endEdge(node);
+        int firstEdge = graph.firstEdge(node);
+        if (this.candidates.length < frameStart + endEdge - firstEdge) {
+            this.candidates = Arrays.copyOf(this.candidates,
+                    Math.max(this.candidates.length * 2, frameStart + endEdge - firstEdge));
+        }
+        int frameEnd = frameStart;
+        for (int edge = firstEdge; edge < endEdge; edge++) {
+            int target = graph.target(edge);
+            if (!isUsedUp(target)) { // stays valid: deeper frames are unwound before this frame is resumed
+                this.candidates[frameEnd++] = target;
+            }
+        }
+        this.cursors[depth] = frameStart;
+        this.frameEnds[depth] = frameEnd;
+    }
+
+    private int pickRandomly(int[] values, int from, int to) {
+        int index = from + this.random.nextInt(to - from);
+        int value = values[index];
+        values[index] = values[from];
+        values[from] = value;
+        return value;
+    }
+
+    private boolean isUsedUp(int node) {
+        return this.used[node] == this.capacities[node];
+    }
+
+    private void take(int node) {
+        this.used[node]++;
+    }
+
+    private void release(int node) {
+        this.used[node]--;
+    }
+
+    interface Goal {
+        /**
+         * Decides whether a full path is a solution. The path and usage counts are live search state, they must be
+         * left as they are.
+         */
+        boolean reached(int[] path, int[] used);
+    }
+}
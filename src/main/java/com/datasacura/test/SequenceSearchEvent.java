@@ -0,0 +1,31 @@
+package com.datasacura.test;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.datasacura.test.SequenceSearch")
+@Label("Sequence Search")
+@Category("Dungeon Pool")
+@Description("One sequence request, batches and parallel searches report their totals")
+final class SequenceSearchEvent extends Event {
+    @Label("Length")
+    int length;
+
+    @Label("Status")
+    String status;
+
+    @Label("Nodes Expanded")
+    long nodesExpanded;
+
+    @Label("Backtracks")
+    long backtracks;
+
+    @Label("Max Depth")
+    int maxDepth;
+
+    @Label("Starts Tried")
+    int startsTried;
+}
@@ -0,0 +1,157 @@
+package com.datasacura.test;
+
+import java.util.Arrays;
+
+final class StronglyConnectedComponents {
+    private final int[] componentOf;
+    private final int[] chainWeights;
+
+    private StronglyConnectedComponents(int[] componentOf, int[] chainWeights) {
+        this.componentOf = componentOf;
+        this.chainWeights = chainWeights;
+    }
+
+    static StronglyConnectedComponents of(CompatibilityGraph graph, int[] weights) {
+        // iterative Tarjan, components are numbered in completion order, so successors always get smaller numbers
+        int numberOfNodes = graph.size();
+        int[] componentOf = new int[numberOfNodes];
+        int[] indexOf = new int[numberOfNodes];
+        int[] lowLinks = new int[numberOfNodes];
+        int[] edgeCursors = new int[numberOfNodes];
+        int[] callStack = new int[numberOfNodes];
+        int[] componentStack = new int[numberOfNodes];
+        boolean[] onComponentStack = new boolean[numberOfNodes];
+        Arrays.fill(indexOf, -1);
+
+        int nextIndex = 0;
+        int numberOfComponents = 0;
+        int componentStackSize = 0;
+        for (int root = 0; root < numberOfNodes; root++) {
+            if (indexOf[root] != -1) {
+                continue;
+            }
+            int callStackSize = 0;
+            callStack[callStackSize++] = root;
+            indexOf[root] = lowLinks[root] = nextIndex++;
+            edgeCursors[root] = graph.firstEdge(root);
+            componentStack[componentStackSize++] = root;
+            onComponentStack[root] = true;
+            while (callStackSize > 0) {
+                int node = callStack[callStackSize - 1];
+                if (edgeCursors[node] < graph.endEdge(node)) {
+                    int target = graph.target(edgeCursors[node]++);
+                    if (indexOf[target] == -1) {
+                        callStack[callStackSize++] = target;
+                        indexOf[target] = lowLinks[target] = nextIndex++;
+                        edgeCursors[target] = graph.firstEdge(target);
+                        componentStack[componentStackSize++] = target;
+                        onComponentStack[target] = true;
+                    } else if (onComponentStack[target]) {
+                        lowLinks[node] = Math.min(lowLinks[node], indexOf[target]);
+                    }
+                    continue;
+                }
+                callStackSize--;
+                if (lowLinks[node] == indexOf[node]) {
+                    int member;
+                    do {
+                        member = componentStack[--componentStackSize];
+                        onComponentStack[member] = false;
+                        componentOf[member] = numberOfComponents;
+                    } while (member != node);
+                    numberOfComponents++;
+                }
+                if (callStackSize > 0) {
+                    int parent = callStack[callStackSize - 1];
+                    lowLinks[parent] = Math.min(lowLinks[parent], lowLinks[node]);
+                }
+            }
+        }
+        return new StronglyConnectedComponents(componentOf, chainWeightsOf(graph, weights, componentOf, numberOfComponents));
+    }
+
+    private static int[] chainWeightsOf(CompatibilityGraph graph, int[] weights, int[] componentOf,
+                                        int numberOfComponents) {
+        // heaviest chain of components in the condensation, weighted by component size: a sequence entering a
+        // component can never return to the ones it came from, so this bounds the sequence length from there
+        int[] componentSizes = new int[numberOfComponents];
+        int[] componentWeights = new int[numberOfComponents];
+        boolean[] cyclic = new boolean[numberOfComponents];
+        int[] heaviestSuccessors = new int[numberOfComponents];
+        int[] nodesByComponent = new int[componentOf.length];
+        int[] componentOffsets = new int[numberOfComponents + 1];
+        for (int node = 0; node < componentOf.length; node++) {
+            int component = componentOf[node];
+            componentSizes[component]++;
+            componentWeights[component] += weights[node];
+            componentOffsets[component + 1]++;
+        }
+        for (int component = 0; component < numberOfComponents; component++) {
+            componentOffsets[component + 1] += componentOffsets[component];
+        }
+        int[] fill = Arrays.copyOf(componentOffsets, numberOfComponents);
+        for (int node = 0; node < componentOf.length; node++) {
+            nodesByComponent[fill[componentOf[node]]++] = node;
+        }
+
+        int[] chainWeights = new int[numberOfComponents];
+        for (int component = 0; component < numberOfComponents; component++) {
+            for (int i = componentOffsets[component]; i < componentOffsets[component + 1]; i++) {
+                int node = nodesByComponent[i];
+                for (int edge = graph.firstEdge(node); edge < graph.endEdge(node); edge++) {
+                    int successor = componentOf[graph.target(edge)];
+                    if (successor != component) {
+                        heaviestSuccessors[component] = Math.max(heaviestSuccessors[component], chainWeights[successor]);
+                    } else {
+                        cyclic[component] = true;
+                    }
+                }
+            }
+            // a lone node without a self-loop can be used only once, however many dungeons it stands for
+            int componentWeight = componentSizes[component] == 1 && !cyclic[component]
+                    ? Math.min(1, componentWeights[component])
+                    : componentWeights[component];
+            chainWeights[component] = componentWeight + heaviestSuccessors[component];
+        }
+        return chainWeights;
+    }
+
+    /**
+     * Same components with the chain weights recomputed for new weights over an unchanged graph. Skips Tarjan, but
+     * still walks every edge once.
+     */
+    StronglyConnectedComponents withWeights(CompatibilityGraph graph, int[] weights) {
+        return new StronglyConnectedComponents(this.componentOf,
+                chainWeightsOf(graph, weights, this.componentOf, this.chainWeights.length));
+    }
+
+    /**
+     * Components of the reversed graph without running Tarjan again: the node sets are the same, numbered backwards
+     * so that successors in the reversed graph still get smaller numbers.
+     */
+    StronglyConnectedComponents reversed(CompatibilityGraph reverseGraph, int[] weights) {
+        int lastComponent = this.chainWeights.length - 1;
+        int[] componentOf = new int[this.componentOf.length];
+        for (int node = 0; node < componentOf.length; node++) {
+            componentOf[node] = lastComponent - this.componentOf[node];
+        }
+        return new StronglyConnectedComponents(componentOf,
+                chainWeightsOf(reverseGraph, weights, componentOf, this.chainWeights.length));
+    }
+
+    int componentOf(int node) {
+        return this.componentOf[node];
+    }
+
+    int maxChainWeight() {
+        int maxChainWeight = 0;
+        for (int chainWeight : this.chainWeights) {
+            maxChainWeight = Math.max(maxChainWeight, chainWeight);
+        }
+        return maxChainWeight;
+    }
+
+    int chainWeightFrom(int node) {
+        return this.chainWeights[this.componentOf[node]];
+    }
+}
@@ -1,22 +1,43 @@
 package com.datasacura.test;
 
 import com.datasacura.test.Dungeon.Block;
+import jdk.jfr.Recording;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Random;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.datasacura.test.Dungeon.Block.AIR;
 import static com.datasacura.test.Dungeon.Block.GROUND;
 import static java.util.Collections.singletonList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -134,6 +155,25 @@ class DungeonPoolTest {
                 "The exception message should indicate that all dungeons in the list must be have the same number of rows.");
     }
 
+    @Test
+    void creationWithDuplicateDungeonsShouldThrowException() {
+        //Given: a list of dungeons containing the same dungeon twice
+        Block[][] area = {
+                {GROUND, AIR, AIR},
+                {AIR, AIR, GROUND},
+                {GROUND, GROUND, GROUND}
+        };
+        Dungeon dungeon = new Dungeon(area);
+        List<Dungeon> dungeons = List.of(dungeon, dungeon.copy());
+
+        //Then: creating a DungeonPool should throw a IllegalArgumentException
+        IllegalArgumentException expectedException = assertThrows(IllegalArgumentException.class, () -> new DungeonPool(dungeons));
+
+        //Expected:
+        assertEquals("Dungeons list contains duplicate dungeons.", expectedException.getMessage(),
+                "The exception message should indicate that every dungeon in the list must be unique.");
+    }
+
     @Test
     void createXSequenceWithZeroLengthShouldReturnEmptySequence() {
         //Given: a DungeonPool with only one dungeon
@@ -254,6 +294,1060 @@ class DungeonPoolTest {
                 "The dungeon sequence should contain exactly 50 dungeons when requesting a sequence of length 50.");
     }
 
+    @Test
+    void findLongSequenceInFullyCompatiblePool() {
+        //Given:
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            dungeons.add(new Dungeon(new Block[][]{{AIR, AIR}, {AIR, AIR}}));
+        }
+        DungeonPool dungeonPool = new DungeonPool(dungeons);
+
+        //Then:
+        List<Dungeon> xSequence = dungeonPool.createXSequence(3000);
+
+        //Expected:
+        assertEquals(3000, xSequence.size(), "The dungeon sequence should use every dungeon of the pool.");
+        assertEquals(3000, new HashSet<>(xSequence).size(), "The dungeon sequence should not repeat dungeons.");
+    }
+
+    @Test
+    void createXSequenceFromSharedPoolConcurrently() throws Exception {
+        //Given:
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            dungeons.addAll(generateDungeonsPath(20, 30));
+        }
+        DungeonPool dungeonPool = new DungeonPool(dungeons);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        //Then:
+        List<Future<List<Dungeon>>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 200; i++) {
+                futures.add(executor.submit(() -> dungeonPool.createXSequence(20)));
+            }
+
+            //Expected:
+            for (Future<List<Dungeon>> future : futures) {
+                assertCompatibleSequence(future.get(), 20);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void findSequenceInParallelForRandomTest() {
+        //Given:
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            dungeons.addAll(generateDungeonsPath(50, 100));
+        }
+        DungeonPool dungeonPool = new DungeonPool(dungeons);
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+
+        //Then:
+        List<Dungeon> xSequence;
+        try {
+            xSequence = dungeonPool.createXSequenceInParallel(50, forkJoinPool);
+        } finally {
+            forkJoinPool.shutdown();
+        }
+
+        //Expected:
+        assertCompatibleSequence(xSequence, 50);
+    }
+
+    @Test
+    void parallelSearchForImpossibleLengthShouldThrowException() {
+        //Given:
+        Block[][] area = {
+                {AIR, GROUND},
+                {GROUND, AIR}
+        };
+        DungeonPool dungeonPool = new DungeonPool(List.of(new Dungeon(area), new Dungeon(area)));
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+
+        //Then:
+        IllegalStateException expectedException;
+        try {
+            expectedException = assertThrows(IllegalStateException.class,
+                    () -> dungeonPool.createXSequenceInParallel(2, forkJoinPool));
+        } finally {
+            forkJoinPool.shutdown();
+        }
+
+        //Expected:
+        assertEquals("It is not possible to build dungeon sequence with provided length.", expectedException.getMessage(),
+                "The exception message should indicate that no sequence of the requested length exists.");
+    }
+
+    @Test
+    void createXSequenceWithinBudgetShouldBeFound() {
+        //Given:
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            dungeons.addAll(generateDungeonsPath(20, 30));
+        }
+        DungeonPool dungeonPool = new DungeonPool(dungeons);
+
+        //Then:
+        SequenceResult result = dungeonPool.createXSequence(20, SearchBudget.ofTimeout(Duration.ofMinutes(1)));
+
+        //Expected:
+        assertEquals(SequenceResult.Status.FOUND, result.getStatus(), "The sequence should be found within the budget.");
+        assertCompatibleSequence(result.getSequence(), 20);
+    }
+
+    @Test
+    void createXSequenceForImpossibleLengthShouldReportImpossible() {
+        //Given:
+        Block[][] area = {
+                {AIR, GROUND},
+                {GROUND, AIR}
+        };
+        DungeonPool dungeonPool = new DungeonPool(List.of(new Dungeon(area), new Dungeon(area)));
+
+        //Then:
+        SequenceResult result = dungeonPool.createXSequence(2, SearchBudget.unlimited());
+
+        //Expected:
+        assertEquals(SequenceResult.Status.IMPOSSIBLE, result.getStatus(),
+                "The result should prove that the sequence can not be built.");
+        assertTrue(result.getSequence().isEmpty(), "No search should run for a length above the upper bound.");
+    }
+
+    @Test
+    void parallelGraphBuildShouldMatchIndexedBuild() {
+        //Given: one word wide and two words wide profiles, both spanning several row tiles, and more classes than
+        //       one column tile holds, each entering at one row and leaving at one row
+        List<Dungeon> narrow = generateDungeonsPath(300, 30);
+        List<Dungeon> wide = generateDungeonsPath(300, 100);
+        List<Dungeon> manyClasses = new ArrayList<>();
+        for (int entranceRow = 0; entranceRow < 72; entranceRow++) {
+            for (int exitRow = 0; exitRow < 72; exitRow++) {
+                long[] cells = new long[Dungeon.numberOfCellWords(72, 2)];
+                cells[entranceRow * 2 / 64] |= 1L << (entranceRow * 2);
+                cells[(exitRow * 2 + 1) / 64] |= 1L << (exitRow * 2 + 1);
+                manyClasses.add(Dungeon.ofCells(72, 2, cells));
+            }
+        }
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        try {
+            //Then:
+            DungeonPool.Builder narrowBuilder = DungeonPool.builder().parallelGraphBuild(forkJoinPool);
+            narrow.forEach(narrowBuilder::add);
+            DungeonPool.Builder wideBuilder = DungeonPool.builder().parallelGraphBuild(forkJoinPool);
+            wide.forEach(wideBuilder::add);
+            DungeonPool.Builder manyClassesBuilder = DungeonPool.builder().parallelGraphBuild(forkJoinPool);
+            manyClasses.forEach(manyClassesBuilder::add);
+            DungeonPool narrowPool = narrowBuilder.build();
+            DungeonPool widePool = wideBuilder.build();
+            DungeonPool manyClassesPool = manyClassesBuilder.build();
+
+            //Expected:
+            assertEquals(edgesOf(new DungeonPool(narrow).index().graph()), edgesOf(narrowPool.index().graph()),
+                    "The tiled build should find the same edges as the indexed one.");
+            assertEquals(edgesOf(new DungeonPool(wide).index().graph()), edgesOf(widePool.index().graph()),
+                    "The tiled build should find the same edges for profiles wider than one word.");
+            assertTrue(manyClassesPool.index().graph().size() > 4096, "Classes should span several column tiles.");
+            assertEquals(edgesOf(new DungeonPool(manyClasses).index().graph()),
+                    edgesOf(manyClassesPool.index().graph()),
+                    "The tiled build should find the same edges across column tiles.");
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    @Test
+    void randomWalkShouldFindChainStartedInTheMiddle() {
+        //Given:
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            dungeons.add(dungeonWithEdges(12, Set.of(i), Set.of(i + 1)));
+        }
+        DungeonPool chainPool = new DungeonPool(dungeons);
+        DungeonPool pathPool = new DungeonPool(generateDungeonsPath(20, 30));
+
+        //Then:
+        SequenceResult chain = chainPool.createXSequence(11, SearchBudget.unlimited(), SearchStrategy.RANDOM_WALK);
+        SequenceResult path = pathPool.createXSequence(20, SearchBudget.unlimited(), SearchStrategy.RANDOM_WALK);
+
+        //Expected:
+        assertEquals(SequenceResult.Status.FOUND, chain.getStatus(), "The whole chain should be found.");
+        assertEquals(dungeons, chain.getSequence(), "The only sequence of that length is the chain.");
+        assertEquals(SequenceResult.Status.FOUND, path.getStatus(), "The generated path should be found.");
+        assertCompatibleSequence(path.getSequence(), 20);
+    }
+
+    @Test
+    void randomWalkShouldFallBackToExhaustiveSearchToProveImpossibility() {
+        //Given: a fully compatible core of 16 dungeons which leaks into a hub with three leaves; the pool is too large
+        //       for the exact bound and the component chain admits 19 dungeons, but a sequence takes at most one leaf
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            dungeons.add(dungeonWithEdges(4, Set.of(0), Set.of(0, 3)));
+        }
+        dungeons.add(dungeonWithEdges(4, Set.of(2, 3), Set.of(1)));
+        for (int i = 0; i < 3; i++) {
+            dungeons.add(dungeonWithEdges(4, Set.of(1), Set.of(2)));
+        }
+        List<SearchStatistics> statistics = new ArrayList<>();
+        DungeonPool.Builder builder = DungeonPool.builder().searchListener(new SearchListener() {
+            @Override
+            public void onSearchCompleted(SearchStatistics searchStatistics) {
+                statistics.add(searchStatistics);
+            }
+        });
+        dungeons.forEach(builder::add);
+        DungeonPool dungeonPool = builder.build();
+
+        //Then:
+        SequenceResult result = dungeonPool.createXSequence(19, SearchBudget.unlimited(),
+                SearchStrategy.RANDOM_WALK);
+
+        //Expected:
+        assertTrue(dungeonPool.getUpperBoundLength() >= 19, "The length bound alone should not reject the request.");
+        assertEquals(SequenceResult.Status.IMPOSSIBLE, result.getStatus(),
+                "The exhaustive fallback should prove that the sequence can not be built.");
+        assertEquals(1, statistics.size(), "The search should be reported once.");
+        assertTrue(statistics.get(0).getNodesExpanded() > 0, "The walk and the fallback should have searched.");
+        assertEquals(18, statistics.get(0).getMaxDepth(), "The longest walk should cover the whole core and a leaf.");
+    }
+
+    @Test
+    void createXSequenceWithExhaustedBudgetShouldReturnBestPartialSequence() {
+        //Given: a strongly connected pool where three leaves hang on a single hub, so no full sequence exists;
+        //       every core dungeon has its own private row, so the core can not be collapsed into one profile class
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 14; i++) {
+            dungeons.add(dungeonWithEdges(17, Set.of(0, 3 + i), Set.of(0, 3 + i)));
+        }
+        dungeons.add(dungeonWithEdges(17, Set.of(0, 2), Set.of(0, 1)));
+        for (int i = 0; i < 3; i++) {
+            dungeons.add(dungeonWithEdges(17, Set.of(1), Set.of(2)));
+        }
+        DungeonPool dungeonPool = new DungeonPool(dungeons);
+
+        //Then:
+        SequenceResult result = dungeonPool.createXSequence(dungeons.size(), SearchBudget.ofExpansions(10_000));
+
+        //Expected:
+        assertEquals(SequenceResult.Status.BUDGET_EXHAUSTED, result.getStatus(),
+                "The search should stop once the expansion budget is exhausted.");
+        assertFalse(result.getSequence().isEmpty(), "The best partial sequence should be reported.");
+        assertCompatibleSequence(result.getSequence(), result.getSequence().size());
+    }
+
+    @Test
+    void createXSequenceShouldPruneBranchesThatCanNotReachLength() {
+        //Given: a fully compatible core of 16 dungeons which leaks into a hub with three leaves; the pool is too large
+        //       for the exact bound and the component chain admits 20 dungeons, but a sequence takes at most one leaf
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            dungeons.add(dungeonWithEdges(4, Set.of(0), Set.of(0, 3)));
+        }
+        dungeons.add(dungeonWithEdges(4, Set.of(2, 3), Set.of(1)));
+        for (int i = 0; i < 3; i++) {
+            dungeons.add(dungeonWithEdges(4, Set.of(1), Set.of(2)));
+        }
+        DungeonPool dungeonPool = new DungeonPool(dungeons);
+
+        //Then:
+        SequenceResult result = dungeonPool.createXSequence(19, SearchBudget.ofExpansions(1_000));
+
+        //Expected:
+        assertTrue(dungeonPool.getUpperBoundLength() >= 19, "The length bound alone should not reject the request.");
+        assertEquals(SequenceResult.Status.IMPOSSIBLE, result.getStatus(),
+                "Pruning should prove impossibility without exploring every ordering of the core.");
+        assertCompatibleSequence(dungeonPool.createXSequence(18), 18);
+    }
+
+    @Test
+    void upperBoundLengthShouldBeExactForSmallPool() {
+        //Given: three dungeons which can only be chained one way and a fourth one nobody can enter
+        DungeonPool dungeonPool = new DungeonPool(List.of(
+                dungeonWithEdges(4, Set.of(0), Set.of(1)),
+                dungeonWithEdges(4, Set.of(1), Set.of(2)),
+                dungeonWithEdges(4, Set.of(2), Set.of(0)),
+                dungeonWithEdges(4, Set.of(3), Set.of(3))));
+
+        //Then-Expected:
+        assertEquals(3, dungeonPool.getUpperBoundLength(), "The longest sequence should chain the first three dungeons.");
+    }
+
+    @Test
+    void upperBoundLengthShouldFollowComponentChainForLargePool() {
+        //Given: a fully compatible core of 20 dungeons which leaks into 5 dead-end dungeons
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            dungeons.add(dungeonWithEdges(2, Set.of(0), Set.of(0)));
+        }
+        for (int i = 0; i < 5; i++) {
+            dungeons.add(dungeonWithEdges(2, Set.of(0), Set.of(1)));
+        }
+        DungeonPool dungeonPool = new DungeonPool(dungeons);
+
+        //Then:
+        IllegalStateException expectedException = assertThrows(IllegalStateException.class,
+                () -> dungeonPool.createXSequence(22));
+
+        //Expected:
+        assertEquals(21, dungeonPool.getUpperBoundLength(), "The bound should be the core plus one dead end.");
+        assertEquals("It is not possible to build dungeon sequence with provided length.", expectedException.getMessage(),
+                "Requests above the bound should be rejected.");
+    }
+
+    @Test
+    void profileClassesShouldGroupDungeonsWithSameEdges() {
+        //Given:
+        Dungeon first = dungeonWithEdges(3, Set.of(0), Set.of(1));
+        Dungeon second = dungeonWithEdges(3, Set.of(0), Set.of(1));
+        Dungeon third = dungeonWithEdges(3, Set.of(0), Set.of(2));
+
+        //Then:
+        ProfileClasses profileClasses = ProfileClasses.of(List.of(first, second, third));
+
+        //Expected:
+        assertEquals(2, profileClasses.size(), "Dungeons with the same entrance and exit should share a class.");
+        assertEquals(List.of(first, third), profileClasses.representatives(),
+                "Every class should be represented by its first dungeon.");
+        assertEquals(2, profileClasses.counts()[0], "The first class should count both dungeons.");
+    }
+
+    @Test
+    void findSequenceDrawsDistinctDungeonsFromOneProfileClass() {
+        //Given: interchangeable dungeons that are compatible with themselves and a second profile to end with
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            dungeons.add(dungeonWithEdges(3, Set.of(0), Set.of(0, 1)));
+        }
+        Dungeon last = dungeonWithEdges(3, Set.of(1), Set.of(2));
+        dungeons.add(last);
+        DungeonPool dungeonPool = new DungeonPool(dungeons);
+
+        //Then:
+        List<Dungeon> xSequence = dungeonPool.createXSequence(6);
+
+        //Expected:
+        assertCompatibleSequence(xSequence, 6);
+        assertEquals(last, xSequence.get(5), "The only dead-end dungeon should close the sequence.");
+    }
+
+    @Test
+    void drawShouldUseEveryMemberOfAClassOnce() {
+        //Given: one class drawn as often as it has members, with both anchors inside it
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            dungeons.add(dungeonWithEdges(3, Set.of(0), Set.of(0)));
+        }
+        ProfileClasses profileClasses = ProfileClasses.of(dungeons);
+        int[] classSequence = new int[dungeons.size()];
+
+        //Then:
+        List<Dungeon> drawn = profileClasses.draw(classSequence, new SplittableRandom(7));
+        List<Dungeon> anchored = profileClasses.draw(classSequence, new SplittableRandom(7), dungeons.get(17),
+                dungeons.get(42));
+
+        //Expected:
+        assertEquals(new HashSet<>(dungeons), new HashSet<>(drawn), "Every member should be drawn once.");
+        assertEquals(new HashSet<>(dungeons), new HashSet<>(anchored),
+                "Every member should be drawn once around the anchors.");
+        assertEquals(dungeons.get(17), anchored.get(0), "The sequence should start with the first anchor.");
+        assertEquals(dungeons.get(42), anchored.get(49), "The sequence should end with the last anchor.");
+    }
+
+    @Test
+    void createXSequencesShouldReturnRequestedNumberOfSequences() {
+        //Given:
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            dungeons.addAll(generateDungeonsPath(20, 30));
+        }
+        DungeonPool dungeonPool = new DungeonPool(dungeons);
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+
+        //Then:
+        List<List<Dungeon>> sequences = dungeonPool.createXSequences(100, 20);
+        List<List<Dungeon>> parallelSequences;
+        try {
+            parallelSequences = dungeonPool.createXSequencesInParallel(100, 20, forkJoinPool);
+        } finally {
+            forkJoinPool.shutdown();
+        }
+
+        //Expected:
+        assertEquals(100, sequences.size(), "The batch should contain the requested number of sequences.");
+        assertEquals(100, parallelSequences.size(), "The parallel batch should contain the requested number of sequences.");
+        sequences.forEach(sequence -> assertCompatibleSequence(sequence, 20));
+        parallelSequences.forEach(sequence -> assertCompatibleSequence(sequence, 20));
+    }
+
+    @Test
+    void createXSequenceWithNegativeLengthShouldThrowException() {
+        //Given:
+        DungeonPool dungeonPool = new DungeonPool(List.of(dungeonWithEdges(2, Set.of(0), Set.of(0))));
+
+        //Then:
+        IllegalArgumentException singleException = assertThrows(IllegalArgumentException.class,
+                () -> dungeonPool.createXSequence(-1, SearchBudget.unlimited()));
+        IllegalArgumentException batchException = assertThrows(IllegalArgumentException.class,
+                () -> dungeonPool.createXSequences(1, -1));
+
+        //Expected:
+        assertEquals("Sequence length must not be negative.", singleException.getMessage(),
+                "The exception message should indicate that the sequence length must not be negative.");
+        assertEquals("Sequence length must not be negative.", batchException.getMessage(),
+                "The batch should reject a negative sequence length as well.");
+    }
+
+    @Test
+    void createXSequencesWithNegativeCountShouldThrowException() {
+        //Given:
+        DungeonPool dungeonPool = new DungeonPool(List.of(dungeonWithEdges(2, Set.of(0), Set.of(0))));
+
+        //Then:
+        IllegalArgumentException expectedException = assertThrows(IllegalArgumentException.class,
+                () -> dungeonPool.createXSequences(-1, 1));
+
+        //Expected:
+        assertEquals("Number of sequences must not be negative.", expectedException.getMessage(),
+                "The exception message should indicate that the number of sequences must not be negative.");
+    }
+
+    @Test
+    void addedDungeonShouldBeUsedInSequences() {
+        //Given:
+        Dungeon first = dungeonWithEdges(3, Set.of(0), Set.of(1));
+        Dungeon second = dungeonWithEdges(3, Set.of(1), Set.of(2));
+        DungeonPool dungeonPool = new DungeonPool(List.of(first));
+
+        //Then:
+        dungeonPool.add(second);
+        List<Dungeon> xSequence = dungeonPool.createXSequence(2);
+
+        //Expected:
+        assertEquals(2, dungeonPool.size(), "The pool should contain the added dungeon.");
+        assertEquals(List.of(first, second), xSequence, "The added dungeon should follow the compatible one.");
+    }
+
+    @Test
+    void removedDungeonShouldNotBeUsedInSequences() {
+        //Given:
+        Dungeon first = dungeonWithEdges(3, Set.of(0), Set.of(1));
+        Dungeon second = dungeonWithEdges(3, Set.of(1), Set.of(2));
+        DungeonPool dungeonPool = new DungeonPool(List.of(first, second));
+
+        //Then:
+        boolean removed = dungeonPool.remove(second);
+
+        //Expected:
+        assertTrue(removed, "A pooled dungeon should be removed.");
+        assertFalse(dungeonPool.remove(second), "A dungeon which is not pooled can not be removed.");
+        assertEquals(1, dungeonPool.getUpperBoundLength(), "Only a single dungeon sequence should remain possible.");
+        assertEquals(List.of(first), dungeonPool.createXSequence(1), "The remaining dungeon should be used.");
+        assertThrows(IllegalStateException.class, () -> dungeonPool.remove(first),
+                "The last dungeon should not be removable.");
+    }
+
+    @Test
+    void addingDuplicateDungeonShouldThrowException() {
+        //Given:
+        Dungeon dungeon = dungeonWithEdges(3, Set.of(0), Set.of(1));
+        DungeonPool dungeonPool = new DungeonPool(List.of(dungeon));
+
+        //Then:
+        IllegalArgumentException expectedException = assertThrows(IllegalArgumentException.class,
+                () -> dungeonPool.add(dungeon.copy()));
+
+        //Expected:
+        assertEquals("Dungeon is already in the pool.", expectedException.getMessage(),
+                "The exception message should indicate that the dungeon is already pooled.");
+    }
+
+    @Test
+    void incrementallyBuiltPoolShouldMatchFreshlyBuiltPool() {
+        //Given:
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            dungeons.addAll(generateDungeonsPath(10, 12));
+        }
+        DungeonPool incrementalPool = new DungeonPool(dungeons.subList(0, 1));
+
+        //Then:
+        dungeons.subList(1, dungeons.size()).forEach(incrementalPool::add);
+        dungeons.subList(0, 10).forEach(incrementalPool::remove);
+        DungeonPool freshPool = new DungeonPool(dungeons.subList(10, dungeons.size()));
+
+        //Expected:
+        assertEquals(freshPool.size(), incrementalPool.size(), "Both pools should contain the same dungeons.");
+        assertEquals(freshPool.getUpperBoundLength(), incrementalPool.getUpperBoundLength(),
+                "Both pools should have the same length bound.");
+        assertCompatibleSequence(incrementalPool.createXSequence(10), 10);
+    }
+
+    @Test
+    void indexedCompatibilityGraphShouldMatchAllPairsGraph() {
+        //Given:
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            dungeons.addAll(generateDungeonsPath(10, 70));
+        }
+
+        //Then:
+        CompatibilityGraph indexedGraph = CompatibilityGraph.build(dungeons);
+        CompatibilityGraph allPairsGraph = CompatibilityGraph.buildAllPairs(dungeons);
+
+        //Expected:
+        assertEquals(allPairsGraph.numberOfEdges(), indexedGraph.numberOfEdges(),
+                "Both graphs should have the same number of edges.");
+        for (int node = 0; node < dungeons.size(); node++) {
+            assertEquals(neighboursOf(allPairsGraph, node), neighboursOf(indexedGraph, node),
+                    "Indexed graph should have the same compatible dungeons as the all-pairs graph.");
+        }
+    }
+
+    @Test
+    void reversedComponentsShouldMatchComponentsOfReversedGraph() {
+        //Given:
+        List<Dungeon> dungeons = new ArrayList<>(generateDungeonsPath(6, 4));
+        for (int i = 0; i < 4; i++) {
+            dungeons.add(dungeonWithEdges(4, Set.of(0), Set.of(0, 3)));
+            dungeons.add(dungeonWithEdges(4, Set.of(1), Set.of(2)));
+        }
+        dungeons.add(dungeonWithEdges(4, Set.of(2, 3), Set.of(1)));
+        ProfileClasses profileClasses = ProfileClasses.of(dungeons);
+        CompatibilityGraph graph = CompatibilityGraph.build(profileClasses.representatives());
+        CompatibilityGraph reverseGraph = graph.reversed();
+
+        //Then:
+        StronglyConnectedComponents reversed = StronglyConnectedComponents.of(graph, profileClasses.counts())
+                .reversed(reverseGraph, profileClasses.counts());
+        StronglyConnectedComponents expected = StronglyConnectedComponents.of(reverseGraph, profileClasses.counts());
+
+        //Expected:
+        for (int node = 0; node < graph.size(); node++) {
+            assertEquals(expected.chainWeightFrom(node), reversed.chainWeightFrom(node),
+                    "Reversed components should bound sequences ending in every class like the reversed graph does.");
+        }
+    }
+
+    @Test
+    void savedPoolShouldBeLoadedWithSameDungeons(@TempDir Path directory) throws IOException {
+        //Given:
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            dungeons.addAll(generateDungeonsPath(10, 70));
+        }
+        DungeonPool dungeonPool = new DungeonPool(dungeons);
+        dungeonPool.remove(dungeons.get(0));
+        Path snapshot = directory.resolve("pool.bin");
+
+        //Then:
+        dungeonPool.save(snapshot);
+        DungeonPool loadedPool = DungeonPool.load(snapshot);
+
+        //Expected:
+        assertEquals(dungeonPool.size(), loadedPool.size(), "Loaded pool should contain every saved dungeon.");
+        assertEquals(dungeonPool.getUpperBoundLength(), loadedPool.getUpperBoundLength(),
+                "Loaded pool should have the same length bound.");
+        List<Dungeon> sequence = loadedPool.createXSequence(10);
+        assertCompatibleSequence(sequence, 10);
+        for (Dungeon loaded : sequence) {
+            Dungeon original = dungeons.get(dungeons.indexOf(loaded));
+            for (int row = 0; row < original.getNumberOfRows(); row++) {
+                assertTrue(Arrays.equals(original.getRow(row), loaded.getRow(row)),
+                        "Loaded dungeon should have the same blocks as the saved one.");
+            }
+        }
+        assertFalse(loadedPool.remove(dungeons.get(0)), "Removed dungeon should not be saved.");
+    }
+
+    @Test
+    void loadedPoolShouldServeMutationsAnchorsAndEndlessSequences(@TempDir Path directory) throws IOException {
+        //Given:
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            dungeons.addAll(generateDungeonsPath(10, 70));
+        }
+        Path snapshot = directory.resolve("pool.bin");
+        new DungeonPool(dungeons).save(snapshot);
+        DungeonPool loadedPool = DungeonPool.load(snapshot);
+
+        //Then:
+        boolean removed = loadedPool.remove(dungeons.get(5));
+        loadedPool.add(dungeons.get(5));
+        SequenceResult anchored = loadedPool.createXSequence(10, dungeons.get(0), null, SearchBudget.unlimited());
+        Iterator<Dungeon> endless = loadedPool.endlessSequence(5);
+        List<Dungeon> emitted = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            emitted.add(endless.next());
+        }
+        Path resaved = directory.resolve("resaved.bin");
+        loadedPool.save(resaved);
+
+        //Expected:
+        assertTrue(removed, "A loaded pool should remove a mapped dungeon.");
+        assertEquals(dungeons.size(), loadedPool.size(), "A loaded pool should take the dungeon back.");
+        assertEquals(SequenceResult.Status.FOUND, anchored.getStatus(), "The anchored sequence should be found.");
+        assertEquals(dungeons.get(0), anchored.getSequence().get(0), "The sequence should start with the anchor.");
+        assertCompatibleSequence(anchored.getSequence(), 10);
+        for (int i = 1; i < emitted.size(); i++) {
+            assertTrue(emitted.get(i - 1).isCompatibleWith(emitted.get(i)),
+                    "Every emitted dungeon should be compatible with the next one.");
+        }
+        assertEquals(dungeons.size(), DungeonPool.load(resaved).size(),
+                "A loaded pool should save every dungeon again.");
+    }
+
+    @Test
+    void loadedPoolShouldSaveBackOverItsOwnSnapshot(@TempDir Path directory) throws IOException {
+        //Given:
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            dungeons.addAll(generateDungeonsPath(10, 70));
+        }
+        Path snapshot = directory.resolve("pool.bin");
+        new DungeonPool(dungeons).save(snapshot);
+        DungeonPool loadedPool = DungeonPool.load(snapshot);
+
+        //Then:
+        loadedPool.remove(dungeons.get(5));
+        loadedPool.save(snapshot);
+        SequenceResult afterSave = loadedPool.createXSequence(10, SearchBudget.unlimited());
+        DungeonPool reloadedPool = DungeonPool.load(snapshot);
+        SequenceResult reloaded = reloadedPool.createXSequence(10, SearchBudget.unlimited());
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.collect(Collectors.toList());
+        }
+
+        //Expected:
+        assertEquals(SequenceResult.Status.FOUND, afterSave.getStatus(),
+                "The saving pool should keep reading its original mapping.");
+        assertCompatibleSequence(afterSave.getSequence(), 10);
+        assertEquals(dungeons.size() - 1, reloadedPool.size(), "The snapshot should hold the saved pool.");
+        assertFalse(reloadedPool.remove(dungeons.get(5)), "The removed dungeon should not be saved.");
+        assertEquals(SequenceResult.Status.FOUND, reloaded.getStatus(), "The saved snapshot should be searchable.");
+        assertCompatibleSequence(reloaded.getSequence(), 10);
+        assertEquals(List.of(snapshot), files, "No temporary file should be left behind.");
+    }
+
+    @Test
+    void removingLastMemberOfClassShouldDropTheClass(@TempDir Path directory) throws IOException {
+        //Given: a lone dungeon in the first class, so every class after it moves down
+        Dungeon lone = dungeonWithEdges(70, Set.of(69), Set.of(68));
+        List<Dungeon> path = generateDungeonsPath(10, 70);
+        List<Dungeon> dungeons = new ArrayList<>(List.of(lone));
+        dungeons.addAll(path);
+        DungeonPool heapPool = new DungeonPool(dungeons);
+        Path snapshot = directory.resolve("pool.bin");
+        heapPool.save(snapshot);
+        DungeonPool loadedPool = DungeonPool.load(snapshot);
+
+        for (DungeonPool dungeonPool : List.of(heapPool, loadedPool)) {
+            int numberOfClasses = dungeonPool.index().graph().size();
+
+            //Then:
+            dungeonPool.remove(lone);
+            int compactedClasses = dungeonPool.index().graph().size();
+            List<Dungeon> sequence = dungeonPool.createXSequence(10);
+            dungeonPool.remove(path.get(3));
+            boolean containsRemoved = dungeonPool.index().profileClasses().contains(path.get(3));
+            int classesBeforeAdding = dungeonPool.index().graph().size();
+            dungeonPool.add(lone);
+
+            //Expected:
+            assertEquals(numberOfClasses - 1, compactedClasses, "An emptied class should be dropped.");
+            assertCompatibleSequence(sequence, 10);
+            assertFalse(containsRemoved, "A removed dungeon should not be found in the compacted classes.");
+            for (Dungeon dungeon : path) {
+                assertEquals(dungeon != path.get(3), dungeonPool.index().profileClasses().contains(dungeon),
+                        "Every remaining dungeon should be found after its class moved.");
+            }
+            assertEquals(classesBeforeAdding + 1, dungeonPool.index().graph().size(),
+                    "Adding the lone dungeon back should append its class again.");
+            assertEquals(path.size(), dungeonPool.size(), "The pool should keep the remaining dungeons.");
+        }
+    }
+
+    @Test
+    void loadingSnapshotWithGraphBeyondMappingLimitShouldThrowException(@TempDir Path directory) throws IOException {
+        //Given: a header claiming more edges than a single int buffer can map
+        Path snapshot = directory.resolve("pool.bin");
+        new DungeonPool(generateDungeonsPath(10, 70)).save(snapshot);
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, 1 << 29), 20);
+        }
+
+        //Then:
+        IOException expectedException = assertThrows(IOException.class, () -> DungeonPool.load(snapshot));
+
+        //Expected:
+        assertTrue(expectedException.getMessage().startsWith("Compatibility graph of the snapshot is too large"),
+                "The exception message should indicate that the graph can not be mapped.");
+    }
+
+    @Test
+    void loadingTruncatedOrCorruptSnapshotShouldThrowException(@TempDir Path directory) throws IOException {
+        //Given:
+        Path truncated = directory.resolve("truncated.bin");
+        new DungeonPool(generateDungeonsPath(10, 70)).save(truncated);
+        try (FileChannel channel = FileChannel.open(truncated, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() / 2);
+        }
+        Path corrupt = directory.resolve("corrupt.bin");
+        new DungeonPool(generateDungeonsPath(10, 70)).save(corrupt);
+        try (FileChannel channel = FileChannel.open(corrupt, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, -1), 16);
+        }
+        Path corruptIndex = directory.resolve("corrupt-index.bin");
+        new DungeonPool(generateDungeonsPath(10, 70)).save(corruptIndex);
+        try (FileChannel channel = FileChannel.open(corruptIndex, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, 3), 28);
+        }
+
+        //Then:
+        IOException truncatedException = assertThrows(IOException.class, () -> DungeonPool.load(truncated));
+        IOException corruptException = assertThrows(IOException.class, () -> DungeonPool.load(corrupt));
+        IOException corruptIndexException = assertThrows(IOException.class, () -> DungeonPool.load(corruptIndex));
+
+        //Expected:
+        assertTrue(truncatedException.getMessage().startsWith("Corrupt dungeon pool snapshot"),
+                "A truncated snapshot should be reported as corrupt.");
+        assertTrue(corruptException.getMessage().startsWith("Corrupt dungeon pool snapshot"),
+                "A snapshot with a negative class count should be reported as corrupt.");
+        assertTrue(corruptIndexException.getMessage().startsWith("Corrupt dungeon pool snapshot"),
+                "A snapshot with a class index smaller than its classes should be reported as corrupt.");
+    }
+
+    @Test
+    void loadingFileWhichIsNotSnapshotShouldThrowException(@TempDir Path directory) throws IOException {
+        //Given:
+        Path snapshot = Files.write(directory.resolve("pool.bin"), new byte[128]);
+
+        //Then:
+        IOException expectedException = assertThrows(IOException.class, () -> DungeonPool.load(snapshot));
+
+        //Expected:
+        assertTrue(expectedException.getMessage().startsWith("File is not a dungeon pool snapshot"),
+                "The exception message should indicate that the file is not a snapshot.");
+    }
+
+    @Test
+    void builderShouldGroupDungeonsWithoutChangingBuiltPools() {
+        //Given: two dungeons sharing a profile and one with its own
+        Dungeon first = dungeonWithEdges(3, Set.of(0), Set.of(1));
+        Dungeon second = dungeonWithEdges(3, Set.of(0), Set.of(1));
+        Dungeon third = dungeonWithEdges(3, Set.of(1), Set.of(0));
+        DungeonPool.Builder builder = DungeonPool.builder().add(first).add(second);
+
+        //Then:
+        DungeonPool firstPool = builder.build();
+        DungeonPool secondPool = builder.add(third).build();
+
+        //Expected:
+        assertEquals(2, firstPool.size(), "A built pool should not see dungeons added to the builder later.");
+        assertEquals(1, firstPool.index().graph().size(), "Dungeons sharing a profile should share a class.");
+        assertFalse(firstPool.index().profileClasses().contains(third), "A later dungeon should not leak in.");
+        assertEquals(3, secondPool.size(), "The builder should keep collecting after a build.");
+        assertEquals(2, secondPool.index().graph().size(), "A new profile should get its own class.");
+    }
+
+    @Test
+    void builderShouldRejectDuplicateDungeon() {
+        //Given:
+        Dungeon dungeon = dungeonWithEdges(3, Set.of(0), Set.of(1));
+        DungeonPool.Builder builder = DungeonPool.builder().add(dungeon);
+
+        //Then:
+        IllegalArgumentException expectedException = assertThrows(IllegalArgumentException.class,
+                () -> builder.add(dungeon));
+
+        //Expected:
+        assertEquals("Dungeons list contains duplicate dungeons.", expectedException.getMessage(),
+                "The exception message should indicate that the dungeon was already added.");
+        assertEquals(1, builder.build().size(), "Rejected dungeon should not be added to the pool.");
+    }
+
+    @Test
+    void searchListenerShouldReceiveStatisticsOfEverySearch() {
+        //Given:
+        List<Dungeon> dungeons = generateDungeonsPath(20, 10);
+        DungeonPool dungeonPool = new DungeonPool(dungeons);
+        List<SearchStatistics> statistics = new ArrayList<>();
+        dungeonPool.setSearchListener(new SearchListener() {
+            @Override
+            public void onSearchCompleted(SearchStatistics searchStatistics) {
+                statistics.add(searchStatistics);
+            }
+        });
+
+        //Then:
+        dungeonPool.createXSequence(20);
+        dungeonPool.createXSequences(3, 10);
+
+        //Expected:
+        assertEquals(2, statistics.size(), "Listener should be called once per request.");
+        SearchStatistics single = statistics.get(0);
+        assertEquals(SequenceResult.Status.FOUND, single.getStatus(), "Search should be reported as found.");
+        assertEquals(20, single.getMaxDepth(), "The deepest partial sequence should be the found one.");
+        assertTrue(single.getStartsTried() >= 1, "At least one start should be tried.");
+        assertTrue(single.getNodesExpanded() >= 19, "Every dungeon after the first one should be expanded.");
+        assertTrue(statistics.get(1).getStartsTried() >= 3, "Batch should report the starts of every sequence.");
+    }
+
+    @Test
+    void searchProbeShouldOnlyExistWhileSomebodyListens() {
+        //Given:
+        SearchListener listener = new SearchListener() {
+        };
+
+        //Then:
+        SearchProbe unobserved = SearchProbe.start(null);
+        SearchProbe listened = SearchProbe.start(listener);
+        SearchProbe recorded;
+        try (Recording recording = new Recording()) {
+            recording.enable(SequenceSearchEvent.class);
+            recording.start();
+            recorded = SearchProbe.start(null);
+        }
+
+        //Expected:
+        assertNull(unobserved, "Nothing should be allocated for a search nobody listens to.");
+        assertNotNull(listened, "A listener should get a probe.");
+        assertNotNull(recorded, "A flight recording should get a probe.");
+    }
+
+    @Test
+    void searchListenerShouldReceiveGraphStatisticsOfEveryBuild() {
+        //Given:
+        List<Dungeon> dungeons = generateDungeonsPath(20, 10);
+        List<GraphStatistics> statistics = new ArrayList<>();
+        SearchListener listener = new SearchListener() {
+            @Override
+            public void onGraphBuilt(GraphStatistics graphStatistics) {
+                statistics.add(graphStatistics);
+            }
+        };
+
+        //Then:
+        DungeonPool.Builder builder = DungeonPool.builder().searchListener(listener);
+        dungeons.subList(0, 19).forEach(builder::add);
+        DungeonPool dungeonPool = builder.build();
+        dungeonPool.add(dungeons.get(19));
+
+        //Expected:
+        assertEquals(2, statistics.size(), "Listener should be called on construction and on every update.");
+        GraphStatistics latest = statistics.get(1);
+        assertEquals(20, latest.getNumberOfDungeons(), "Statistics should describe the updated pool.");
+        assertEquals(latest.getNumberOfNodes(), Arrays.stream(latest.getDegreeHistogram()).sum(),
+                "Every node should be counted in the degree histogram.");
+        assertTrue(latest.getNumberOfEdges() >= latest.getNumberOfNodes() - 1,
+                "A pool holding a path should have an edge per consecutive pair.");
+        assertTrue(statistics.get(0).getBuildTimeNanos() > 0 && latest.getBuildTimeNanos() > 0,
+                "Build time should cover grouping the dungeons into classes and building the graph.");
+    }
+
+    @Test
+    void anchoredSequenceShouldStartAndEndWithAnchors() {
+        //Given:
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            dungeons.addAll(generateDungeonsPath(10, 12));
+        }
+        DungeonPool dungeonPool = new DungeonPool(dungeons);
+        Dungeon first = dungeons.get(20);
+        Dungeon last = dungeons.get(29);
+
+        //Then:
+        List<Dungeon> sequence = dungeonPool.createXSequence(10, first, last);
+        List<Dungeon> startingSequence = dungeonPool.createXSequence(10, first, null);
+        List<Dungeon> endingSequence = dungeonPool.createXSequence(10, null, last);
+
+        //Expected:
+        assertCompatibleSequence(sequence, 10);
+        assertEquals(first, sequence.get(0), "Sequence should start with the first anchor.");
+        assertEquals(last, sequence.get(9), "Sequence should end with the last anchor.");
+        assertCompatibleSequence(startingSequence, 10);
+        assertEquals(first, startingSequence.get(0), "Sequence should start with the first anchor.");
+        assertCompatibleSequence(endingSequence, 10);
+        assertEquals(last, endingSequence.get(9), "Sequence should end with the last anchor.");
+    }
+
+    @Test
+    void anchoredSequenceAgainstChainDirectionShouldBeImpossible() {
+        //Given:
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            dungeons.add(dungeonWithEdges(12, Set.of(i), Set.of(i + 1)));
+        }
+        DungeonPool dungeonPool = new DungeonPool(dungeons);
+
+        //Then:
+        SequenceResult forward = dungeonPool.createXSequence(11, dungeons.get(0), dungeons.get(10),
+                SearchBudget.unlimited());
+        SequenceResult backward = dungeonPool.createXSequence(11, dungeons.get(10), dungeons.get(0),
+                SearchBudget.unlimited());
+
+        //Expected:
+        assertEquals(dungeons, forward.getSequence(), "The only anchored sequence should be the whole chain.");
+        assertEquals(SequenceResult.Status.IMPOSSIBLE, backward.getStatus(),
+                "A sequence against the chain direction should be impossible.");
+    }
+
+    @Test
+    void anchoredSequenceShouldBeFoundWhenBackwardHalvesDoNotFitLimit() {
+        //Given:
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            dungeons.add(dungeonWithEdges(8, Set.of(0, i % 7 + 1), Set.of(0, i / 7 + 1)));
+        }
+        DungeonPool dungeonPool = new DungeonPool(dungeons);
+
+        //Then:
+        List<Dungeon> sequence = dungeonPool.createXSequence(12, dungeons.get(0), dungeons.get(1));
+
+        //Expected:
+        assertCompatibleSequence(sequence, 12);
+        assertEquals(dungeons.get(0), sequence.get(0), "Sequence should start with the first anchor.");
+        assertEquals(dungeons.get(1), sequence.get(11), "Sequence should end with the last anchor.");
+    }
+
+    @Test
+    void anchoredSearchShouldSpendOneBudgetAcrossBothHalves() {
+        //Given: a core the forward half has to walk through and a hub with leaves the backward half ends in
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            dungeons.add(dungeonWithEdges(4, Set.of(0), Set.of(0, 3)));
+        }
+        dungeons.add(dungeonWithEdges(4, Set.of(2, 3), Set.of(1)));
+        for (int i = 0; i < 3; i++) {
+            dungeons.add(dungeonWithEdges(4, Set.of(1), Set.of(2)));
+        }
+        List<SearchStatistics> statistics = new ArrayList<>();
+        DungeonPool.Builder builder = DungeonPool.builder().searchListener(new SearchListener() {
+            @Override
+            public void onSearchCompleted(SearchStatistics searchStatistics) {
+                statistics.add(searchStatistics);
+            }
+        });
+        dungeons.forEach(builder::add);
+        DungeonPool dungeonPool = builder.build();
+
+        //Then: the whole search takes 27 expansions, the backward halves are enumerated within the first ten
+        SequenceResult exhausted = dungeonPool.createXSequence(18, dungeons.get(0), dungeons.get(19),
+                SearchBudget.ofExpansions(20));
+        SearchStatistics exhaustedStatistics = statistics.get(statistics.size() - 1);
+        SequenceResult found = dungeonPool.createXSequence(18, dungeons.get(0), dungeons.get(19),
+                SearchBudget.ofExpansions(27));
+
+        //Expected:
+        assertEquals(SequenceResult.Status.BUDGET_EXHAUSTED, exhausted.getStatus(),
+                "The forward half should only get the expansions the backward half left.");
+        assertEquals(2, exhaustedStatistics.getStartsTried(), "Both halves should have been searched.");
+        assertTrue(exhaustedStatistics.getNodesExpanded() <= 21,
+                "Both halves together should stay within the budget.");
+        assertEquals(SequenceResult.Status.FOUND, found.getStatus(), "A budget covering both halves should do.");
+        assertCompatibleSequence(found.getSequence(), 18);
+    }
+
+    @Test
+    void endlessStreamShouldNotRepeatDungeonsWithinWindow() {
+        //Given:
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            dungeons.addAll(generateDungeonsPath(10, 12));
+        }
+        DungeonPool dungeonPool = new DungeonPool(dungeons);
+
+        //Then:
+        List<Dungeon> sequence = dungeonPool.endlessStream(20).limit(10_000).collect(Collectors.toList());
+
+        //Expected:
+        assertEquals(10_000, sequence.size(), "Endless stream should keep emitting dungeons.");
+        for (int i = 1; i < sequence.size(); i++) {
+            assertTrue(sequence.get(i - 1).isCompatibleWith(sequence.get(i)),
+                    "Every dungeon in the sequence should be compatible with the next one.");
+        }
+        for (int i = 0; i + 20 <= sequence.size(); i++) {
+            assertEquals(20, new HashSet<>(sequence.subList(i, i + 20)).size(),
+                    "No dungeon should repeat within the no-repeat window.");
+        }
+    }
+
+    @Test
+    void endlessSequenceShouldFollowChainToItsEnd() {
+        //Given:
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            dungeons.add(dungeonWithEdges(12, Set.of(i), Set.of(i + 1)));
+        }
+        DungeonPool dungeonPool = new DungeonPool(dungeons);
+
+        //Then:
+        Iterator<Dungeon> iterator = dungeonPool.endlessSequence(11, 4);
+        List<Dungeon> sequence = new ArrayList<>();
+        iterator.forEachRemaining(sequence::add);
+
+        //Expected:
+        assertCompatibleSequence(sequence, sequence.size());
+        assertEquals(dungeons.get(10), sequence.get(sequence.size() - 1),
+                "Sequence should only end where the chain has no continuation.");
+        assertThrows(NoSuchElementException.class, iterator::next, "Ended sequence should have no next dungeon.");
+    }
+
+    @Test
+    void endlessSequenceWithWindowLargerThanPoolShouldThrowException() {
+        //Given:
+        DungeonPool dungeonPool = new DungeonPool(generateDungeonsPath(5, 10));
+
+        //Then:
+        IllegalArgumentException expectedException = assertThrows(IllegalArgumentException.class,
+                () -> dungeonPool.endlessSequence(6));
+
+        //Expected:
+        assertEquals("No-repeat window must be between one and number of dungeons.", expectedException.getMessage(),
+                "The exception message should indicate that the window does not fit the pool.");
+    }
+
+    private Dungeon dungeonWithEdges(int numberOfRows, Set<Integer> entranceRows, Set<Integer> exitRows) {
+        Block[][] area = generateGroundArea(numberOfRows);
+        openEntrancesAt(area, entranceRows);
+        openExitsAt(area, exitRows);
+        return new Dungeon(area);
+    }
+
+    private List<Set<Integer>> edgesOf(CompatibilityGraph graph) {
+        List<Set<Integer>> edges = new ArrayList<>(graph.size());
+        for (int node = 0; node < graph.size(); node++) {
+            Set<Integer> targets = new HashSet<>();
+            for (int edge = graph.firstEdge(node); edge < graph.endEdge(node); edge++) {
+                targets.add(graph.target(edge));
+            }
+            edges.add(targets);
+        }
+        return edges;
+    }
+
+    private void assertCompatibleSequence(List<Dungeon> sequence, int expectedLength) {
+        assertEquals(expectedLength, sequence.size(), "The dungeon sequence should have the requested length.");
+        assertEquals(expectedLength, new HashSet<>(sequence).size(), "The dungeon sequence should not repeat dungeons.");
+        for (int i = 1; i < sequence.size(); i++) {
+            assertTrue(sequence.get(i - 1).isCompatibleWith(sequence.get(i)),
+                    "Every dungeon in the sequence should be compatible with the next one.");
+        }
+    }
+
+    private Set<Integer> neighboursOf(CompatibilityGraph graph, int node) {
+        Set<Integer> neighbours = new HashSet<>();
+        for (int edge = graph.firstEdge(node); edge < graph.endEdge(node); edge++) {
+            neighbours.add(graph.target(edge));
+        }
+        return neighbours;
+    }
+
     private List<Dungeon> generateDungeonsPath(int length, int dungeonSize) {
         List<Dungeon> result = new ArrayList<>(dungeonSize);
         Set<Integer> enters = generateRandomIndexes(dungeonSize);
@@ -0,0 +1,137 @@
+package com.datasacura.test;
+
+import com.datasacura.test.Dungeon.Block;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.datasacura.test.Dungeon.Block.AIR;
+import static com.datasacura.test.Dungeon.Block.GROUND;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DungeonStreamsTest {
+
+    @Test
+    void readAsciiShouldCreateDungeonPerGrid(@TempDir Path directory) throws IOException {
+        //Given:
+        Path file = Files.write(directory.resolve("dungeons.txt"), "..#\n#..\n\n.#.\r\n...\r\n".getBytes(US_ASCII));
+        List<Dungeon> dungeons = new ArrayList<>();
+
+        //Then:
+        DungeonStreams.readAscii(file, dungeons::add);
+
+        //Expected:
+        assertEquals(2, dungeons.size(), "Every grid separated by a blank line should become a dungeon.");
+        assertArrayEquals(new Block[]{AIR, AIR, GROUND}, dungeons.get(0).getRow(0),
+                "Dot should be read as air and hash as ground.");
+        assertArrayEquals(new Block[]{GROUND, AIR, AIR}, dungeons.get(0).getRow(1),
+                "Rows should be read in the file order.");
+        assertArrayEquals(new Block[]{AIR, AIR, AIR}, dungeons.get(1).getRow(1),
+                "Last grid should be read without a trailing blank line.");
+        assertTrue(dungeons.get(1).isCompatibleWith(dungeons.get(0)),
+                "Edge profiles should be derived from the read cells.");
+    }
+
+    @Test
+    void readAsciiWithRaggedGridShouldThrowException(@TempDir Path directory) throws IOException {
+        //Given:
+        Path file = Files.write(directory.resolve("dungeons.txt"), "...\n..\n".getBytes(US_ASCII));
+
+        //Then:
+        IOException expectedException = assertThrows(IOException.class,
+                () -> DungeonStreams.readAscii(file, dungeon -> { }));
+
+        //Expected:
+        assertEquals("Dungeon row at line 2 is shorter than the first one.", expectedException.getMessage(),
+                "The exception message should point to the malformed row.");
+    }
+
+    @Test
+    void binaryStreamShouldBeReadIntoPoolWithSameDungeons(@TempDir Path directory) throws IOException {
+        //Given:
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Block[][] area = new Block[70][90];
+            for (int row = 0; row < area.length; row++) {
+                for (int col = 0; col < area[row].length; col++) {
+                    area[row][col] = (row * 31 + col * 17 + i) % 3 == 0 ? GROUND : AIR;
+                }
+            }
+            dungeons.add(new Dungeon(area));
+        }
+        Path file = directory.resolve("dungeons.bin");
+
+        //Then:
+        DungeonStreams.writeBinary(dungeons, file);
+        List<Dungeon> readDungeons = new ArrayList<>();
+        DungeonStreams.readBinary(file, readDungeons::add);
+        DungeonPool dungeonPool = DungeonStreams.readBinaryPool(file);
+
+        //Expected:
+        assertEquals(dungeons.size(), dungeonPool.size(), "Pool should contain every streamed dungeon.");
+        for (int i = 0; i < dungeons.size(); i++) {
+            for (int row = 0; row < 70; row++) {
+                assertArrayEquals(dungeons.get(i).getRow(row), readDungeons.get(i).getRow(row),
+                        "Streamed dungeon should have the same blocks as the written one.");
+            }
+        }
+    }
+
+    @Test
+    void readBinaryWithOversizedRecordShouldThrowException() {
+        //Given: a header claiming a 2^20 x 2^20 grid with no cells behind it
+        ByteBuffer stream = binaryStream(1 << 20, 1 << 20);
+
+        //Then:
+        IOException expectedException = assertThrows(IOException.class,
+                () -> DungeonStreams.readBinary(Channels.newChannel(new ByteArrayInputStream(stream.array())),
+                        dungeon -> { }));
+
+        //Expected:
+        assertTrue(expectedException.getMessage().contains("1048576 x 1048576"),
+                "The exception message should point to the oversized record.");
+    }
+
+    @Test
+    void readBinaryWithNegativeOrTruncatedRecordShouldThrowException() {
+        //Given:
+        ByteBuffer negative = binaryStream(-3, 5);
+        byte[] truncated = Arrays.copyOf(binaryStream(3, 5).array(), 12);
+
+        //Then:
+        IOException negativeException = assertThrows(IOException.class,
+                () -> DungeonStreams.readBinary(Channels.newChannel(new ByteArrayInputStream(negative.array())),
+                        dungeon -> { }));
+        IOException truncatedException = assertThrows(IOException.class,
+                () -> DungeonStreams.readBinary(Channels.newChannel(new ByteArrayInputStream(truncated)),
+                        dungeon -> { }));
+
+        //Expected:
+        assertEquals("Dungeon record has an empty area.", negativeException.getMessage(),
+                "A negative row count should be rejected.");
+        assertEquals("Dungeon record is truncated.", truncatedException.getMessage(),
+                "A header cut in half should be reported as truncated.");
+    }
+
+    private ByteBuffer binaryStream(int numberOfRows, int numberOfColumns) {
+        return ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(DungeonStreams.MAGIC)
+                .putInt(DungeonStreams.VERSION)
+                .putInt(numberOfRows)
+                .putInt(numberOfColumns);
+    }
+}
@@ -3,8 +3,11 @@ package com.datasacura.test;
 import com.datasacura.test.Dungeon.Block;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+
 import static com.datasacura.test.Dungeon.Block.AIR;
 import static com.datasacura.test.Dungeon.Block.GROUND;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
@@ -72,6 +75,34 @@ class DungeonTest {
         assertNotNull(dungeon, "A dungeon created with a valid area should successfully initialize.");
     }
 
+    @Test
+    void readBlocksOfPackedArea() {
+        //Given:
+        Block[][] area = groundArea(7, 11);
+        area[0][0] = AIR;
+        area[3][5] = AIR;
+        area[6][10] = AIR;
+
+        //Then:
+        Dungeon dungeon = new Dungeon(area);
+        area[1][1] = AIR;
+
+        //Expected:
+        assertEquals(7, dungeon.getNumberOfRows(), "The dungeon should keep the number of rows.");
+        assertEquals(11, dungeon.getNumberOfColumns(), "The dungeon should keep the number of columns.");
+        Block[][] expectedArea = groundArea(7, 11);
+        expectedArea[0][0] = AIR;
+        expectedArea[3][5] = AIR;
+        expectedArea[6][10] = AIR;
+        for (int rowIndex = 0; rowIndex < 7; rowIndex++) {
+            assertArrayEquals(expectedArea[rowIndex], dungeon.getRow(rowIndex),
+                    "Every row should be read back as it was given, later changes of the source must not leak in.");
+        }
+        assertEquals(AIR, dungeon.getBlockAt(3, 5), "A single cell should be read back as it was given.");
+        assertThrows(IndexOutOfBoundsException.class, () -> dungeon.getBlockAt(7, 0),
+                "Reading outside of the area should fail.");
+    }
+
     @Test
     void testIfTwoDungeonsAreCompatible() {
         //Given:
@@ -96,6 +127,27 @@ class DungeonTest {
                 "Dungeon2 should not be deemed compatible with Dungeon1, indicating directional compatibility.");
     }
 
+    @Test
+    void testIfTallDungeonsAreCompatibleBeyondFirstWord() {
+        //Given:
+        Block[][] area1 = groundArea(130, 2);
+        Block[][] area2 = groundArea(130, 2);
+        area1[0][0] = AIR;
+        area1[129][1] = AIR;
+        area2[129][0] = AIR;
+        area2[64][1] = AIR;
+
+        Dungeon dungeon1 = new Dungeon(area1);
+        Dungeon dungeon2 = new Dungeon(area2);
+
+        //Then-Expected:
+        assertTrue(dungeon1.isPassable(), "Tall dungeon with an entrance and an exit should be passable.");
+        assertTrue(dungeon1.isCompatibleWith(dungeon2),
+                "Dungeon1 exit in the last row should match Dungeon2 entrance in the last row.");
+        assertFalse(dungeon2.isCompatibleWith(dungeon1),
+                "Dungeon2 exit in row 64 should not match Dungeon1 entrance in row 0.");
+    }
+
     @Test
     void testIfClosedDungeonIsPassable() {
         //Given:
@@ -181,6 +233,28 @@ class DungeonTest {
                 "The hash code of the original dungeon and its copy should be the same, indicating a proper copy.");
     }
 
+    @Test
+    void copyDungeonKeepsAreaAndCompatibility() {
+        //Given:
+        Block[][] area = {
+                {AIR, GROUND, GROUND},
+                {GROUND, GROUND, AIR},
+                {GROUND, GROUND, GROUND}
+        };
+        Dungeon dungeon = new Dungeon(area);
+
+        //Then:
+        Dungeon dungeonCopy = dungeon.copy();
+
+        //Expected:
+        for (int rowIndex = 0; rowIndex < area.length; rowIndex++) {
+            assertArrayEquals(area[rowIndex], dungeonCopy.getRow(rowIndex), "The copy should have the same area.");
+        }
+        assertEquals(dungeon.isCompatibleWith(dungeon), dungeonCopy.isCompatibleWith(dungeon),
+                "The copy should be compatible with the same dungeons as the original.");
+        assertTrue(dungeonCopy.isPassable(), "The copy should be passable as the original.");
+    }
+
     @Test
     void equalsReflexive() {
         //Given:
@@ -209,4 +283,12 @@ class DungeonTest {
         assertEquals(dungeon.hashCode(), dungeon.hashCode(),
                 "The hash code of a dungeon should remain consistent across multiple calls.");
     }
+
+    private Block[][] groundArea(int numberOfRows, int numberOfColumns) {
+        Block[][] area = new Block[numberOfRows][numberOfColumns];
+        for (Block[] row : area) {
+            Arrays.fill(row, GROUND);
+        }
+        return area;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,188 @@
+package com.datasacura.test;
+
+import com.datasacura.test.Dungeon.Block;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.datasacura.test.Dungeon.Block.AIR;
+import static com.datasacura.test.Dungeon.Block.GROUND;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SequenceReservoirTest {
+
+    @Test
+    void takeShouldRefillReservoirUpToCapacity() {
+        //Given:
+        DungeonPool dungeonPool = new DungeonPool(openDungeons(10));
+        SequenceReservoir reservoir = new SequenceReservoir(dungeonPool, 4, Runnable::run);
+
+        //Then:
+        List<Dungeon> first = reservoir.take(5);
+        List<Dungeon> second = reservoir.take(5);
+
+        //Expected:
+        assertEquals(5, first.size(), "Synchronous fallback should build a sequence of the requested length.");
+        assertEquals(5, second.size(), "Reserved sequence should have the requested length.");
+        assertEquals(4, reservoir.available(5), "Reservoir should be refilled after every take.");
+        assertEquals(0, reservoir.available(3), "Lengths which were never requested should not be reserved.");
+    }
+
+    @Test
+    void sequencesBuiltBeforePoolUpdateShouldNotBeServed() {
+        //Given:
+        List<Dungeon> dungeons = openDungeons(10);
+        DungeonPool dungeonPool = new DungeonPool(dungeons);
+        SequenceReservoir reservoir = new SequenceReservoir(dungeonPool, 16, Runnable::run);
+        reservoir.take(8);
+        Dungeon removed = dungeons.get(0);
+
+        //Then:
+        dungeonPool.remove(removed);
+        List<List<Dungeon>> sequences = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            sequences.add(reservoir.take(8));
+        }
+
+        //Expected:
+        for (List<Dungeon> sequence : sequences) {
+            assertFalse(sequence.contains(removed), "Removed dungeon should not be served from the reservoir.");
+        }
+    }
+
+    @Test
+    void poolUpdateShouldEmptyReservoirAndScheduleRefill() {
+        //Given: refills are queued and only run when the test says so
+        List<Dungeon> dungeons = openDungeons(10);
+        DungeonPool dungeonPool = new DungeonPool(dungeons);
+        List<Runnable> refills = new ArrayList<>();
+        SequenceReservoir reservoir = new SequenceReservoir(dungeonPool, 8, refills::add);
+        reservoir.take(5);
+        refills.remove(0).run();
+        int availableBeforeUpdate = reservoir.available(5);
+
+        //Then:
+        dungeonPool.remove(dungeons.get(0));
+        int availableAfterUpdate = reservoir.available(5);
+        int scheduledRefills = refills.size();
+        refills.remove(0).run();
+
+        //Expected:
+        assertEquals(8, availableBeforeUpdate, "Reservoir should be full before the update.");
+        assertEquals(0, availableAfterUpdate, "Sequences of the previous snapshot should be dropped right away.");
+        assertEquals(1, scheduledRefills, "The update should schedule a refill.");
+        assertEquals(8, reservoir.available(5), "The refill should build sequences from the updated pool.");
+        for (int i = 0; i < 8; i++) {
+            assertFalse(reservoir.take(5).contains(dungeons.get(0)),
+                    "Removed dungeon should not be served from the reservoir.");
+        }
+    }
+
+    @Test
+    void rejectedRefillShouldBeRetriedOnNextTake() {
+        //Given:
+        DungeonPool dungeonPool = new DungeonPool(openDungeons(10));
+        int[] attempts = new int[1];
+        SequenceReservoir reservoir = new SequenceReservoir(dungeonPool, 4, task -> {
+            attempts[0]++;
+            throw new RejectedExecutionException("Executor is shut down.");
+        });
+
+        //Then:
+        List<Dungeon> first = reservoir.take(5);
+        List<Dungeon> second = reservoir.take(5);
+
+        //Expected:
+        assertEquals(5, first.size(), "A rejected refill should not fail the take.");
+        assertEquals(5, second.size(), "A rejected refill should not fail the take.");
+        assertEquals(2, attempts[0], "Every take should try to schedule the refill again.");
+        assertEquals(0, reservoir.available(5), "Nothing should be reserved without a refill.");
+    }
+
+    @Test
+    void invalidLengthShouldBeRejectedBeforeReserving() {
+        //Given:
+        DungeonPool dungeonPool = new DungeonPool(openDungeons(10));
+        List<Runnable> refills = new ArrayList<>();
+        SequenceReservoir reservoir = new SequenceReservoir(dungeonPool, 4, refills::add);
+
+        //Then:
+        assertThrows(IllegalArgumentException.class, () -> reservoir.take(-1));
+        assertThrows(IllegalArgumentException.class, () -> reservoir.take(11));
+        dungeonPool.remove(dungeonPool.createXSequence(1).get(0));
+
+        //Expected:
+        assertTrue(refills.isEmpty(), "No refill should be scheduled for an invalid length, not even on update.");
+    }
+
+    @Test
+    void unfillableLengthShouldStopRefillingUntilPoolUpdate() {
+        //Given: ten chained dungeons and a separate pair, so eleven fits the pool but no chain
+        List<Dungeon> dungeons = openDungeons(10);
+        dungeons.add(topRowDungeon());
+        dungeons.add(topRowDungeon());
+        DungeonPool dungeonPool = new DungeonPool(dungeons);
+        List<Runnable> refills = new ArrayList<>();
+        SequenceReservoir reservoir = new SequenceReservoir(dungeonPool, 4, refills::add);
+
+        //Then:
+        assertThrows(IllegalStateException.class, () -> reservoir.take(11));
+        int refillsAfterFirstTake = refills.size();
+        refills.remove(0).run();
+        assertThrows(IllegalStateException.class, () -> reservoir.take(11));
+        int refillsAfterSecondTake = refills.size();
+        dungeonPool.add(openDungeons(1).get(0));
+        int refillsAfterUpdate = refills.size();
+        refills.remove(0).run();
+
+        //Expected:
+        assertEquals(1, refillsAfterFirstTake, "The first take should schedule a refill.");
+        assertEquals(0, refillsAfterSecondTake, "A length the refill gave up on should not be scheduled again.");
+        assertEquals(1, refillsAfterUpdate, "A pool update should schedule the refill again.");
+        assertEquals(4, reservoir.available(11), "The refill should fill the length once the pool allows it.");
+    }
+
+    @Test
+    void takeFromClosedReservoirShouldThrowException() {
+        //Given:
+        SequenceReservoir reservoir = new SequenceReservoir(new DungeonPool(openDungeons(3)), 4);
+
+        //Then:
+        reservoir.close();
+        IllegalStateException expectedException = assertThrows(IllegalStateException.class, () -> reservoir.take(2));
+
+        //Expected:
+        assertTrue(expectedException.getMessage().contains("closed"),
+                "The exception message should indicate that the reservoir is closed.");
+    }
+
+    private Dungeon topRowDungeon() {
+        Block[][] area = new Block[3][3];
+        for (Block[] row : area) {
+            Arrays.fill(row, GROUND);
+        }
+        area[0][0] = AIR;
+        area[0][2] = AIR;
+        return new Dungeon(area);
+    }
+
+    private List<Dungeon> openDungeons(int count) {
+        List<Dungeon> dungeons = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Block[][] area = new Block[3][3];
+            for (Block[] row : area) {
+                Arrays.fill(row, GROUND);
+            }
+            area[1][0] = AIR;
+            area[1][2] = AIR;
+            dungeons.add(new Dungeon(area));
+        }
+        return dungeons;
+    }
+}